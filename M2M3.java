@@ -1,8 +1,28 @@
 
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 
 public class M2M3 {
@@ -23,6 +43,10 @@ public class M2M3 {
         MathOperations mo = new MathOperations();
         System.out.println("Sum int: " + mo.sum(2, 3));
         System.out.println("Sum double: " + mo.sum(2.5, 3.7));
+        System.out.println("Sum int[]: " + mo.sum(new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, 1}));
+        double[] tiny = new double[100_000];
+        Arrays.fill(tiny, 0.1);
+        System.out.println("Sum double[]: " + mo.sum(tiny) + " parallel: " + mo.parallelSum(tiny));
 
         // 28. Counter
         new Counter();
@@ -58,6 +82,12 @@ public class M2M3 {
         // 34. Chargeable array
         Chargeable[] devices = { new Smartphone(), new Laptop(), new ElectricCar() };
         for (Chargeable d : devices) d.charge();
+        ChargingPlan plan = new ChargingScheduler(11).plan(List.of(
+                new ChargeRequest(devices[0], 0.02, 0.02, 0),
+                new ChargeRequest(devices[1], 0.1, 0.1, 1),
+                new ChargeRequest(devices[2], 40, 11, 7)));
+        System.out.println("Charging plan: " + plan);
+        for (Chargeable d : plan.onTime()) d.charge();
 
         // 35. Vehicle structure
         CarVehicle cv = new CarVehicle();
@@ -72,6 +102,10 @@ public class M2M3 {
         for (Animal a : animals) WildlifeConservationSystem.printAnimalDetails(a);
         WildlifeConservationSystem.performAction((Flyable) animals[3]); // Eagle
         WildlifeConservationSystem.performAction((Swimmable) animals[1]); // Penguin
+        AnimalRegistry registry = new AnimalRegistry();
+        for (Animal a : animals) registry.add(a);
+        registry.flyAll();
+        registry.swimAll();
 
         // 38. SIM system
         SIM sim = new SIM("1234567890", 10.0);
@@ -90,6 +124,12 @@ public class M2M3 {
         Product p2 = new Product("P2", "Mouse", 20, 5);
         cart.addProduct(p1); cart.addProduct(p2);
         cart.printDetails();
+        CustomerDirectory directory = new CustomerDirectory();
+        directory.add(cust);
+        directory.add(new Customer("C2", "Luigi", "luigi@mail.com", LocalDate.of(2024, 5, 1)));
+        System.out.println("By email: " + directory.findByEmail("LUIGI@mail.com").name);
+        System.out.println("Registered in 2024: " + directory.registeredBetween(
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)).size());
 
         // 40. CarBuilder
         Car myCar = new CarBuilder().setBrand("Toyota").setModel("Supra").setEngine("3.0L").addFeature("Turbo").build();
@@ -108,6 +148,8 @@ public class M2M3 {
         HomeTheaterFacade ht = new HomeTheaterFacade();
         ht.startMovie();
         ht.endMovie();
+        System.out.println(ht.startMovieParallel());
+        System.out.println(ht.endMovieParallel());
 
         // 44-45. Bridge Pattern
         RemoteControl basic = new BasicRemote(new TV());
@@ -117,6 +159,13 @@ public class M2M3 {
         RemoteControl advanced = new AdvancedRemote(new Radio());
         advanced.powerOn();
         advanced.powerOff();
+
+        GroupRemote group = new GroupRemote(List.of(new TV(), new Radio(), new TV()), 2, 2);
+        group.powerOn();
+        group.setVolume(10);
+        group.setVolume(15); // replaces the pending 10
+        System.out.println(group.flush());
+        group.shutdown();
     }
 }
 
@@ -169,6 +218,73 @@ class MathOperations {
     public double sum(double a, double b) {
         return a + b;
     }
+
+    // Bulk sums. Four independent accumulators let the JIT keep several adds in flight;
+    // the leftover elements are handled by a scalar tail. Ints are accumulated in longs
+    // so the total cannot overflow for any array that fits in memory.
+    public long sum(int[] values) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < values.length; i++) s0 += values[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public long sum(long[] values) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int end = values.length & ~3; i < end; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < values.length; i++) s0 += values[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Doubles use Neumaier (improved Kahan) compensated summation. The array is always cut
+    // into fixed-size chunks and the chunk results are combined in index order, so the
+    // sequential and parallel versions return exactly the same value whatever the pool does.
+    private static final int CHUNK = 1 << 14;
+
+    public double sum(double[] values) {
+        return compensatedSum(values, false);
+    }
+
+    public double parallelSum(double[] values) {
+        return compensatedSum(values, true);
+    }
+
+    private static double compensatedSum(double[] values, boolean parallel) {
+        int chunks = (values.length + CHUNK - 1) / CHUNK;
+        double[] sums = new double[chunks];
+        double[] comps = new double[chunks];
+        IntStream range = IntStream.range(0, chunks);
+        (parallel ? range.parallel() : range).forEach(c -> {
+            double sum = 0, comp = 0;
+            for (int i = c * CHUNK, end = Math.min(values.length, i + CHUNK); i < end; i++) {
+                double t = sum + values[i];
+                comp += Math.abs(sum) >= Math.abs(values[i]) ? (sum - t) + values[i] : (values[i] - t) + sum;
+                sum = t;
+            }
+            sums[c] = sum;
+            comps[c] = comp;
+        });
+        double sum = 0, comp = 0;
+        for (int c = 0; c < chunks; c++) {
+            double t = sum + sums[c];
+            comp += Math.abs(sum) >= Math.abs(sums[c]) ? (sum - t) + sums[c] : (sums[c] - t) + sum;
+            sum = t;
+            comp += comps[c];
+        }
+        return sum + comp;
+    }
 }
 
 // 28. Class Counter
@@ -326,6 +442,141 @@ class ElectricCar implements Chargeable {
     }
 }
 
+// 34. Overnight charging planner for many Chargeable devices under a shared power cap.
+// Time is split into one-hour slots, so a device drawing N kW for one slot receives N kWh.
+class ChargeRequest {
+    final Chargeable device;
+    final double demandKwh, maxKw;
+    final int deadlineSlot; // last slot (inclusive) in which charging must finish
+
+    ChargeRequest(Chargeable device, double demandKwh, double maxKw, int deadlineSlot) {
+        if (maxKw <= 0) throw new IllegalArgumentException("maxKw must be positive");
+        this.device = device;
+        this.demandKwh = demandKwh;
+        this.maxKw = maxKw;
+        this.deadlineSlot = deadlineSlot;
+    }
+}
+
+class ChargingPlan {
+    final List<ChargeRequest> requests;
+    final int[] finishSlot; // per request, -1 if the deadline cannot be met
+    final double[] loadKw;  // planned site load per slot
+    int missed;
+
+    ChargingPlan(List<ChargeRequest> requests, int slots) {
+        this.requests = requests;
+        this.finishSlot = new int[requests.size()];
+        this.loadKw = new double[slots];
+    }
+
+    List<Chargeable> onTime() {
+        List<Chargeable> result = new ArrayList<>();
+        for (int i = 0; i < finishSlot.length; i++)
+            if (finishSlot[i] >= 0) result.add(requests.get(i).device);
+        return result;
+    }
+
+    public String toString() {
+        return requests.size() + " devices, " + missed + " miss their deadline, peak load "
+                + Arrays.stream(loadKw).max().orElse(0) + " kW";
+    }
+}
+
+class ChargingScheduler {
+    private final double powerCapKw;
+
+    ChargingScheduler(double powerCapKw) {
+        this.powerCapKw = powerCapKw;
+    }
+
+    // Earliest-deadline-first: in every slot the devices with the closest deadline get power
+    // first, each up to its own rate, until the cap is used up. Requests live in a binary heap
+    // of indices ordered by deadline, so planning costs O((n + partial allocations) log n).
+    public ChargingPlan plan(List<ChargeRequest> requests) {
+        int n = requests.size();
+        int horizon = 0;
+        double[] remaining = new double[n];
+        int[] deadline = new int[n];
+        for (int i = 0; i < n; i++) {
+            ChargeRequest r = requests.get(i);
+            remaining[i] = r.demandKwh;
+            deadline[i] = r.deadlineSlot;
+            horizon = Math.max(horizon, r.deadlineSlot + 1);
+        }
+        ChargingPlan plan = new ChargingPlan(requests, horizon);
+        Arrays.fill(plan.finishSlot, -1);
+
+        int[] heap = new int[n];
+        int heapSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] <= 0) plan.finishSlot[i] = 0;
+            else if (deadline[i] < 0) plan.missed++;
+            else heap[heapSize++] = i;
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) siftDown(heap, heapSize, i, deadline);
+
+        int[] carried = new int[n];
+        for (int slot = 0; slot < horizon && heapSize > 0; slot++) {
+            double capacity = powerCapKw;
+            int carriedCount = 0;
+            while (heapSize > 0 && capacity > 0) {
+                int r = heap[0];
+                heap[0] = heap[--heapSize];
+                siftDown(heap, heapSize, 0, deadline);
+                if (deadline[r] < slot) {
+                    plan.missed++;
+                    continue;
+                }
+                double kw = Math.min(capacity, Math.min(requests.get(r).maxKw, remaining[r]));
+                remaining[r] -= kw;
+                capacity -= kw;
+                plan.loadKw[slot] += kw;
+                if (remaining[r] > 1e-9) carried[carriedCount++] = r;
+                else plan.finishSlot[r] = slot;
+            }
+            for (int i = 0; i < carriedCount; i++) {
+                heap[heapSize] = carried[i];
+                siftUp(heap, heapSize++, deadline);
+            }
+        }
+        plan.missed += heapSize; // still unfinished when the last deadline passed
+        return plan;
+    }
+
+    // Sites have independent power budgets, so each one is planned on its own core.
+    public static Map<String, ChargingPlan> planSites(Map<String, List<ChargeRequest>> sites, double powerCapKw) {
+        Map<String, ChargingPlan> plans = new ConcurrentHashMap<>();
+        ChargingScheduler scheduler = new ChargingScheduler(powerCapKw);
+        sites.entrySet().parallelStream().forEach(e -> plans.put(e.getKey(), scheduler.plan(e.getValue())));
+        return plans;
+    }
+
+    private static void siftDown(int[] heap, int size, int i, int[] key) {
+        int item = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) child++;
+            if (key[heap[child]] >= key[item]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = item;
+    }
+
+    private static void siftUp(int[] heap, int i, int[] key) {
+        int item = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (key[heap[parent]] <= key[item]) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = item;
+    }
+}
+
 // 35. Vehicle Structure
 interface Movable {
     void move();
@@ -423,6 +674,75 @@ class WildlifeConservationSystem {
     }
 }
 
+// 37. Registry that classifies each animal once, at insert time
+class AnimalRegistry {
+    static final int FLYABLE = 1;
+    static final int SWIMMABLE = 1 << 1;
+    private static final int BATCH_SIZE = 4096;
+
+    private Animal[] animals = new Animal[16];
+    private byte[] capabilities = new byte[16];
+    private int size;
+
+    // Dense per-capability lists, already typed so queries never re-check the class.
+    private Flyable[] flyers = new Flyable[16];
+    private int flyerCount;
+    private Swimmable[] swimmers = new Swimmable[16];
+    private int swimmerCount;
+
+    public synchronized int add(Animal animal) {
+        int caps = 0;
+        if (animal instanceof Flyable f) {
+            caps |= FLYABLE;
+            if (flyerCount == flyers.length) flyers = Arrays.copyOf(flyers, flyerCount * 2);
+            flyers[flyerCount++] = f;
+        }
+        if (animal instanceof Swimmable sw) {
+            caps |= SWIMMABLE;
+            if (swimmerCount == swimmers.length) swimmers = Arrays.copyOf(swimmers, swimmerCount * 2);
+            swimmers[swimmerCount++] = sw;
+        }
+        if (size == animals.length) {
+            animals = Arrays.copyOf(animals, size * 2);
+            capabilities = Arrays.copyOf(capabilities, size * 2);
+        }
+        animals[size] = animal;
+        capabilities[size] = (byte) caps;
+        return size++;
+    }
+
+    public synchronized int capabilitiesOf(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("No animal with id " + id);
+        return capabilities[id];
+    }
+
+    public synchronized int size() { return size; }
+    public synchronized int flyerCount() { return flyerCount; }
+    public synchronized int swimmerCount() { return swimmerCount; }
+
+    public void flyAll() {
+        Flyable[] snapshot;
+        int count;
+        synchronized (this) { snapshot = flyers; count = flyerCount; }
+        inBatches(count, i -> WildlifeConservationSystem.performAction(snapshot[i]));
+    }
+
+    public void swimAll() {
+        Swimmable[] snapshot;
+        int count;
+        synchronized (this) { snapshot = swimmers; count = swimmerCount; }
+        inBatches(count, i -> WildlifeConservationSystem.performAction(snapshot[i]));
+    }
+
+    private static void inBatches(int count, IntConsumer action) {
+        int batches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+        IntStream.range(0, batches).parallel().forEach(b -> {
+            int end = Math.min(count, (b + 1) * BATCH_SIZE);
+            for (int i = b * BATCH_SIZE; i < end; i++) action.accept(i);
+        });
+    }
+}
+
 // 38. SIM Card system
 class Call {
     int duration;
@@ -486,6 +806,172 @@ class Customer {
         this.email = email;
         this.registrationDate = LocalDate.now();
     }
+
+    public Customer(String id, String name, String email, LocalDate registrationDate) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.registrationDate = registrationDate;
+    }
+}
+
+// 39. Customer directory indexed by id, email and registration date
+class CustomerDirectory {
+    private final StampedLock lock = new StampedLock();
+    private Customer[] customers = new Customer[16];
+    private int size;
+    // Open-addressing tables holding position + 1 (0 = empty), kept at most half full.
+    private int[] byId = new int[32];
+    private int[] byEmail = new int[32];
+    // Sorted (epochDay << 32 | position) keys, so a date range is two binary searches.
+    private long[] byDate = new long[16];
+
+    public void add(Customer c) {
+        long stamp = lock.writeLock();
+        try {
+            insert(c);
+            long key = dateKey(c.registrationDate, size - 1);
+            int at = -Arrays.binarySearch(byDate, 0, size - 1, key) - 1;
+            System.arraycopy(byDate, at, byDate, at + 1, size - 1 - at);
+            byDate[at] = key;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Expects lines "id,name,email,yyyy-MM-dd"; a header line starting with "id," is skipped.
+    // All-or-nothing: rows are parsed and checked for duplicates before anything is inserted,
+    // and the date index is sorted once at the end instead of once per customer.
+    public int loadCsv(BufferedReader in) throws IOException {
+        List<Customer> batch = new ArrayList<>();
+        int lineNo = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || line.startsWith("id,")) continue;
+            String[] f = line.split(",");
+            if (f.length != 4)
+                throw new IllegalArgumentException("Malformed customer at line " + lineNo + ": " + line);
+            batch.add(new Customer(f[0].trim(), f[1].trim(), f[2].trim(), LocalDate.parse(f[3].trim())));
+        }
+        long stamp = lock.writeLock();
+        try {
+            Set<String> ids = new HashSet<>(), emails = new HashSet<>();
+            for (Customer c : batch) {
+                if (!ids.add(c.id) || lookup(byId, customers, c.id, false) != null)
+                    throw new IllegalArgumentException("Duplicate customer id: " + c.id);
+                if (!emails.add(c.email.toLowerCase(Locale.ROOT)) || lookup(byEmail, customers, c.email, true) != null)
+                    throw new IllegalArgumentException("Duplicate customer email: " + c.email);
+            }
+            for (Customer c : batch) insert(c);
+            for (int i = 0; i < size; i++) byDate[i] = dateKey(customers[i].registrationDate, i);
+            Arrays.sort(byDate, 0, size);
+            return batch.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Customer findById(String id) {
+        return find(id, false);
+    }
+
+    public Customer findByEmail(String email) {
+        return find(email, true);
+    }
+
+    public List<Customer> registeredBetween(LocalDate from, LocalDate to) {
+        long stamp = lock.readLock();
+        try {
+            int start = -Arrays.binarySearch(byDate, 0, size, dateKey(from, 0) - 1) - 1;
+            int end = -Arrays.binarySearch(byDate, 0, size, dateKey(to.plusDays(1), 0) - 1) - 1;
+            List<Customer> result = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) result.add(customers[(int) byDate[i]]);
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int n = size;
+        if (lock.validate(stamp)) return n;
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Customer find(String key, boolean email) {
+        // Optimistic read: a concurrent writer can leave us with a torn view (or even an
+        // exception), in which case validate fails and we retry under the read lock.
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Customer c = lookup(email ? byEmail : byId, customers, key, email);
+                if (lock.validate(stamp)) return c;
+            } catch (RuntimeException ignored) {
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return lookup(email ? byEmail : byId, customers, key, email);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static Customer lookup(int[] table, Customer[] items, String key, boolean email) {
+        int mask = table.length - 1;
+        for (int slot = hash(key, email) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            Customer c = items[table[slot] - 1];
+            if (email ? c.email.equalsIgnoreCase(key) : c.id.equals(key)) return c;
+        }
+        return null;
+    }
+
+    private void insert(Customer c) {
+        if (lookup(byId, customers, c.id, false) != null)
+            throw new IllegalArgumentException("Duplicate customer id: " + c.id);
+        if (lookup(byEmail, customers, c.email, true) != null)
+            throw new IllegalArgumentException("Duplicate customer email: " + c.email);
+        if (size == customers.length) {
+            customers = Arrays.copyOf(customers, size * 2);
+            byDate = Arrays.copyOf(byDate, size * 2);
+        }
+        customers[size++] = c;
+        if (size * 2 > byId.length) {
+            byId = new int[byId.length * 2];
+            byEmail = new int[byEmail.length * 2];
+            for (int i = 0; i < size; i++) index(customers[i], i);
+        } else {
+            index(c, size - 1);
+        }
+    }
+
+    private void index(Customer c, int position) {
+        put(byId, hash(c.id, false), position);
+        put(byEmail, hash(c.email, true), position);
+    }
+
+    private static void put(int[] table, int hash, int position) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = position + 1;
+    }
+
+    private static int hash(String key, boolean email) {
+        int h = (email ? key.toLowerCase(Locale.ROOT) : key).hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static long dateKey(LocalDate date, int position) {
+        return (date.toEpochDay() << 32) | position;
+    }
 }
 
 class Cart {
@@ -639,6 +1125,138 @@ class HomeTheaterFacade {
         sound.off();
         System.out.println("Movie Ended");
     }
+
+    // Same steps as startMovie, but independent devices are powered concurrently.
+    // The sound system waits for the DVD player so the speakers never pop.
+    StepOrchestrator.Report startMovieParallel() {
+        StepOrchestrator.Report report = new StepOrchestrator()
+                .step("lights", lights::dim)
+                .step("dvd", dvd::on)
+                .step("projector", proj::on)
+                .step("sound", sound::on, "dvd")
+                .run(DEVICE_TIMEOUT_MS);
+        if (report.succeeded()) System.out.println("Movie Started");
+        return report;
+    }
+
+    // Sound goes off before the source it is playing.
+    StepOrchestrator.Report endMovieParallel() {
+        StepOrchestrator.Report report = new StepOrchestrator()
+                .step("lights", lights::on)
+                .step("sound", sound::off)
+                .step("dvd", dvd::off, "sound")
+                .step("projector", proj::off)
+                .run(DEVICE_TIMEOUT_MS);
+        if (report.succeeded()) System.out.println("Movie Ended");
+        return report;
+    }
+
+    private static final long DEVICE_TIMEOUT_MS = 5000;
+}
+
+// 43. Dependency-aware orchestrator for the facade steps
+class StepOrchestrator {
+    private static class Step {
+        final String name;
+        final Runnable action;
+        final String[] dependsOn;
+        // Written by the pool thread, read by Report even for steps that timed out while running.
+        volatile long startNanos, endNanos;
+
+        Step(String name, Runnable action, String[] dependsOn) {
+            this.name = name;
+            this.action = action;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    // Steps must be declared after the steps they depend on, which also rules out cycles.
+    public StepOrchestrator step(String name, Runnable action, String... dependsOn) {
+        if (steps.containsKey(name))
+            throw new IllegalArgumentException("Duplicate step: " + name);
+        for (String dep : dependsOn)
+            if (!steps.containsKey(dep))
+                throw new IllegalArgumentException("Unknown dependency " + dep + " for step " + name);
+        steps.put(name, new Step(name, action, dependsOn));
+        return this;
+    }
+
+    public Report run(long timeoutMillis) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, steps.size()));
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        long origin = System.nanoTime();
+        try {
+            for (Step s : steps.values()) {
+                CompletableFuture<?>[] deps = new CompletableFuture<?>[s.dependsOn.length];
+                for (int i = 0; i < deps.length; i++) deps[i] = futures.get(s.dependsOn[i]);
+                // The timeout is armed only once the dependencies are done, so it bounds this step alone.
+                CompletableFuture<Void> f = CompletableFuture.allOf(deps)
+                        .thenCompose(ignored -> CompletableFuture.runAsync(() -> {
+                            s.startNanos = System.nanoTime();
+                            try {
+                                s.action.run();
+                            } finally {
+                                s.endNanos = System.nanoTime();
+                            }
+                        }, pool).orTimeout(timeoutMillis, TimeUnit.MILLISECONDS));
+                futures.put(s.name, f);
+            }
+            for (Map.Entry<String, CompletableFuture<Void>> e : futures.entrySet()) {
+                try {
+                    e.getValue().join();
+                } catch (Exception ex) {
+                    failures.put(e.getKey(), ex.getCause() != null ? ex.getCause() : ex);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Report(steps.values(), System.nanoTime() - origin, failures);
+    }
+
+    static class Report {
+        final Map<String, Long> durationsMicros = new LinkedHashMap<>();
+        final Map<String, Throwable> failures;
+        final List<String> criticalPath = new ArrayList<>();
+        final long totalMicros;
+
+        Report(Iterable<Step> steps, long totalNanos, Map<String, Throwable> failures) {
+            this.failures = failures;
+            this.totalMicros = totalNanos / 1000;
+            Map<String, Step> byName = new LinkedHashMap<>();
+            Step last = null;
+            for (Step s : steps) {
+                byName.put(s.name, s);
+                long start = s.startNanos, end = s.endNanos;
+                if (end == 0) continue;
+                durationsMicros.put(s.name, (end - start) / 1000);
+                if (last == null || end > last.endNanos) last = s;
+            }
+            // Walk back from the step that finished last through the dependency that finished last.
+            while (last != null) {
+                criticalPath.add(0, last.name);
+                Step prev = null;
+                for (String dep : last.dependsOn) {
+                    Step d = byName.get(dep);
+                    if (prev == null || d.endNanos > prev.endNanos) prev = d;
+                }
+                last = prev;
+            }
+        }
+
+        boolean succeeded() {
+            return failures.isEmpty();
+        }
+
+        public String toString() {
+            return "Total " + totalMicros + "us, steps " + durationsMicros
+                    + ", critical path " + criticalPath
+                    + (failures.isEmpty() ? "" : ", failed " + failures.keySet());
+        }
+    }
 }
 
 // 44-45. Bridge Pattern for remotes and devices
@@ -700,3 +1318,132 @@ class AdvancedRemote extends RemoteControl {
         }
     }
 }
+
+// 44-45. Group remote: fan-out of queued commands to many devices
+class GroupRemote {
+    // Devices split into batches once, each already classified by type, so commands never test
+    // or cast a device.
+    private static final class Batch {
+        final List<DeviceBridge> devices;
+        final List<TV> tvs = new ArrayList<>();
+        final List<Radio> radios = new ArrayList<>();
+
+        Batch(List<DeviceBridge> devices) {
+            this.devices = devices;
+            for (DeviceBridge d : devices) {
+                if (d instanceof TV) tvs.add((TV) d);
+                if (d instanceof Radio) radios.add((Radio) d);
+            }
+        }
+    }
+
+    private static final class Command<T extends DeviceBridge> {
+        final Function<Batch, List<T>> targets;
+        final Consumer<T> action;
+
+        Command(Function<Batch, List<T>> targets, Consumer<T> action) {
+            this.targets = targets;
+            this.action = action;
+        }
+
+        // A device that already failed in this flush receives no further commands. Each call is
+        // timed and added to the device's total, so a slow device stands out from its batch.
+        void deliver(Batch batch, Report report) {
+            for (T device : targets.apply(batch)) {
+                if (report.failures.containsKey(device)) continue;
+                long start = System.nanoTime();
+                try {
+                    action.accept(device);
+                } catch (RuntimeException e) {
+                    report.failures.put(device, e);
+                } finally {
+                    report.latencyMicros.merge(device, (System.nanoTime() - start) / 1000, Long::sum);
+                }
+            }
+        }
+    }
+
+    private final List<Batch> batches = new ArrayList<>();
+    private final ThreadPoolExecutor executor;
+    // One pending command per key. A newer command replaces the older one but keeps the key's
+    // first position, so powerOn; setVolume; powerOff; powerOn still powers on before the volume.
+    // Only the latest command per key survives, so interleavings across keys are not replayed.
+    private final Map<String, Command<?>> pending = new LinkedHashMap<>();
+    private int coalesced;
+
+    public GroupRemote(List<DeviceBridge> devices, int threads, int batchSize) {
+        List<DeviceBridge> all = List.copyOf(devices);
+        for (int from = 0; from < all.size(); from += batchSize)
+            batches.add(new Batch(all.subList(from, Math.min(all.size(), from + batchSize))));
+        // Bounded queue: when it is full the caller runs the batch itself instead of piling up work.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    void powerOn() { queue("power", new Command<>(b -> b.devices, DeviceBridge::turnOn)); }
+    void powerOff() { queue("power", new Command<>(b -> b.devices, DeviceBridge::turnOff)); }
+
+    void setVolume(int level) {
+        queue("volume", new Command<>(b -> b.tvs, tv -> tv.setVolume(level)));
+    }
+
+    void setFrequency(double frequency) {
+        queue("frequency", new Command<>(b -> b.radios, radio -> radio.setFrequency(frequency)));
+    }
+
+    private synchronized void queue(String key, Command<?> command) {
+        if (pending.put(key, command) != null) coalesced++;
+    }
+
+    // Delivers every pending command to its devices and waits for all batches to finish.
+    public Report flush() {
+        List<Command<?>> commands;
+        int saved;
+        synchronized (this) {
+            commands = new ArrayList<>(pending.values());
+            saved = coalesced;
+            pending.clear();
+            coalesced = 0;
+        }
+        Report report = new Report(commands.size(), saved);
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (Batch batch : batches)
+            running.add(CompletableFuture.runAsync(() -> deliver(batch, commands, report), executor));
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        return report;
+    }
+
+    private static void deliver(Batch batch, List<Command<?>> commands, Report report) {
+        // devices no command targets still count as reached
+        for (DeviceBridge d : batch.devices) report.latencyMicros.put(d, 0L);
+        for (Command<?> c : commands) c.deliver(batch, report);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    static class Report {
+        final Map<DeviceBridge, Long> latencyMicros = new ConcurrentHashMap<>();
+        final Map<DeviceBridge, RuntimeException> failures = new ConcurrentHashMap<>();
+        final int commandsSent;
+        final int commandsCoalesced;
+
+        Report(int commandsSent, int commandsCoalesced) {
+            this.commandsSent = commandsSent;
+            this.commandsCoalesced = commandsCoalesced;
+        }
+
+        long maxLatencyMicros() {
+            long max = 0;
+            for (long l : latencyMicros.values()) max = Math.max(max, l);
+            return max;
+        }
+
+        public String toString() {
+            return "Delivered " + commandsSent + " commands (" + commandsCoalesced + " coalesced) to "
+                    + latencyMicros.size() + " devices, max latency " + maxLatencyMicros()
+                    + "us, failures " + failures.size();
+        }
+    }
+}
@@ -1,6 +1,43 @@
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.*;
+import java.util.zip.GZIPOutputStream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
 
 public class M4 {
     public static void main(String[] args) {
@@ -10,9 +47,11 @@ public class M4 {
         // 47. Square root with logging
         SqrtLogger.calculateSqrt(16);
         SqrtLogger.calculateSqrt(-9);
+        SqrtLogger.shutdown();
 
         // 48. Safe parsing
         SafeParser.parseNumbers(Arrays.asList("42", "abc", "100"));
+        SafeParser.shutdown();
 
         // 49. Login system
         try {
@@ -42,6 +81,15 @@ public class M4 {
         loggerChain.log(LogLevel.WARNING, "This is a warning.");
         loggerChain.log(LogLevel.ERROR, "This is an error.");
 
+        CompiledLogger compiled = CompiledLogger.compile(loggerChain);
+        compiled.log(LogLevel.WARNING, "Disk {} is {}% full", "sda1", 93);
+        compiled.log(LogLevel.INFO, () -> "Built only because INFO is enabled");
+
+        try (AsyncLogger async = new AsyncLogger(loggerChain, 1024, AsyncLogger.Overflow.BLOCK)) {
+            async.log(LogLevel.INFO, "Logged from a background thread.");
+            async.log(LogLevel.ERROR, "Also asynchronous.");
+        }
+
         // 55. Catching all exceptions and explaining risks
         UnsafeCatcher.riskyOperation();
     }
@@ -50,7 +98,8 @@ public class M4 {
 // Exercise 46
 class DivisionHandler {
     public static void divide100ByUserInput() {
-        Scanner scanner = new Scanner(System.in);
+        // Shared stdin tokenizer: closing it here would close System.in for the next exercises.
+        FastScanner scanner = FastScanner.stdin();
         try {
             System.out.print("Enter an integer: ");
             int number = scanner.nextInt();
@@ -58,17 +107,158 @@ class DivisionHandler {
         } catch (ArithmeticException e) {
             System.out.println("Cannot divide by zero.");
         } catch (InputMismatchException e) {
+            scanner.next(); // the rejected token is still pending, as with Scanner
             System.out.println("Invalid input. Please enter an integer.");
+        } catch (NoSuchElementException e) {
+            System.out.println("No input.");
         }
-        finally {
-            scanner.close();
+    }
+}
+
+// Exercise 46: byte-level replacement for java.util.Scanner on large piped inputs.
+// Reads through a 64 KiB buffer and parses ints and longs straight from the bytes, with no
+// regex and no String per number. Methods mirror Scanner's (next, nextInt, nextLong,
+// nextLine, hasNext) and throw the same exceptions, so call sites can switch freely: the
+// delimiter after a token is left unread, so nextInt() followed by nextLine() returns the rest
+// of that line, and a token rejected by nextInt/nextLong stays available to the next call.
+class FastScanner implements Closeable {
+    private static FastScanner stdin;
+
+    private final InputStream in;
+    private final byte[] buf = new byte[1 << 16];
+    private int len, pos;
+    private byte[] token = new byte[64];
+    private String rejected; // token that nextInt/nextLong refused, not consumed yet
+
+    FastScanner(InputStream in) {
+        this.in = in;
+    }
+
+    static synchronized FastScanner stdin() {
+        if (stdin == null) stdin = new FastScanner(System.in);
+        return stdin;
+    }
+
+    private int read() {
+        if (pos == len) {
+            try {
+                len = in.read(buf, 0, buf.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                return -1;
+            }
         }
+        return buf[pos++] & 0xFF; // unsigned, so UTF-8 bytes are neither whitespace nor EOF
+    }
+
+    private int skipWhitespace() {
+        int b;
+        while ((b = read()) != -1 && b <= ' ') { }
+        return b;
+    }
+
+    public boolean hasNext() {
+        if (rejected != null) return true;
+        int b = skipWhitespace();
+        if (b == -1) return false;
+        pos--; // the byte just read is still in the buffer
+        return true;
+    }
+
+    public String next() {
+        if (rejected != null) {
+            String t = rejected;
+            rejected = null;
+            return t;
+        }
+        int b = skipWhitespace();
+        if (b == -1) throw new NoSuchElementException();
+        int n = 0;
+        do {
+            if (n == token.length) token = Arrays.copyOf(token, n * 2);
+            token[n++] = (byte) b;
+        } while ((b = read()) != -1 && b > ' ');
+        if (b != -1) pos--; // leave the delimiter for nextLine, like Scanner
+        return new String(token, 0, n, StandardCharsets.UTF_8);
+    }
+
+    public int nextInt() {
+        return (int) nextLong(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public long nextLong() {
+        return nextLong(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Parses while copying the token, so that a rejected token can be kept for the next call.
+    private long nextLong(long min, long max) {
+        if (rejected != null) {
+            OptionalLong value = NumberParser.tryParseLong(rejected);
+            if (!value.isPresent() || value.getAsLong() < min || value.getAsLong() > max)
+                throw new InputMismatchException(rejected);
+            rejected = null;
+            return value.getAsLong();
+        }
+        int b = skipWhitespace();
+        if (b == -1) throw new NoSuchElementException();
+        boolean negative = b == '-';
+        int n = 0;
+        if (b == '-' || b == '+') {
+            token[n++] = (byte) b;
+            b = read();
+        }
+        long result = 0;
+        boolean valid = b >= '0' && b <= '9';
+        // accumulate negatively, like Long.parseLong, so Long.MIN_VALUE is reachable
+        long limit = negative ? Math.max(Long.MIN_VALUE, min) : -max;
+        for (; b != -1 && b > ' '; b = read()) {
+            if (n == token.length) token = Arrays.copyOf(token, n * 2);
+            token[n++] = (byte) b;
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit)
+                valid = false; // keep copying: the whole token is handed back
+            else if (valid)
+                result = result * 10 - digit;
+        }
+        if (b != -1) pos--;
+        if (!valid) {
+            rejected = new String(token, 0, n, StandardCharsets.UTF_8);
+            throw new InputMismatchException(rejected);
+        }
+        return negative ? result : -result;
+    }
+
+    // Rest of the current line, without the line terminator.
+    public String nextLine() {
+        String prefix = rejected;
+        rejected = null;
+        int b = read();
+        if (b == -1 && prefix == null) throw new NoSuchElementException("No line found");
+        int n = 0;
+        for (; b != -1 && b != '\n'; b = read()) {
+            if (n == token.length) token = Arrays.copyOf(token, n * 2);
+            token[n++] = (byte) b;
+        }
+        if (n > 0 && token[n - 1] == '\r') n--;
+        String rest = new String(token, 0, n, StandardCharsets.UTF_8);
+        return prefix == null ? rest : prefix + rest;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
     }
 }
 
 // Exercise 47
 class SqrtLogger {
     private static final Logger logger = Logger.getLogger("SqrtLogger");
+    private static final LogFacade log = new LogFacade(logger, "SqrtLogger", "calculateSqrt");
+    private static final RateLimitedLog warnings = new RateLimitedLog(log, 10, 20, 10_000);
 
     static {
         try {
@@ -82,39 +272,530 @@ class SqrtLogger {
     }
 
     public static void calculateSqrt(double number) {
-        logger.info("Input: " + number);
+        log.info("Input: {}", number);
         if (number < 0) {
-            logger.warning("Invalid input: negative number");
+            warnings.warning("Invalid input: negative number");
             System.out.println("Cannot calculate square root of negative number.");
         } else {
             double result = Math.sqrt(number);
-            logger.info("Result: " + result);
+            log.info("Result: {}", result);
             System.out.println("Square root: " + result);
         }
     }
+
+    // Reports suppressed warnings while sqrt.log is still open.
+    public static void shutdown() {
+        warnings.close();
+    }
 }
 
 // Exercise 48
 class SafeParser {
-    private static final Logger logger = Logger.getLogger("SafeParser");
+    private static final LogFacade log = new LogFacade(Logger.getLogger("SafeParser"), "SafeParser", "parseNumbers");
+    private static final RateLimitedLog warnings = new RateLimitedLog(log, 10, 20, 10_000);
 
     public static void parseNumbers(List<String> list) {
+        // NumberParser reports bad tokens without throwing, so a feed full of garbage
+        // does not pay for an exception and a stack trace per token.
         for (String s : list) {
-            try {
-                int num = Integer.parseInt(s);
-                System.out.println("Parsed: " + num);
-            } catch (NumberFormatException e) {
-                logger.warning("Unparseable string: " + s);
+            OptionalInt num = NumberParser.tryParseInt(s);
+            if (num.isPresent()) System.out.println("Parsed: " + num.getAsInt());
+            else warnings.warning("Unparseable string: {}", s);
+        }
+    }
+
+    public static void shutdown() {
+        warnings.close();
+    }
+}
+
+// Exercise 48: exception-free number parsing, one value at a time or in bulk.
+// Bulk methods split the input on a separator (surrounding whitespace is ignored, as is a
+// trailing empty token) and return the values in a primitive array plus a bitmap with the
+// positions of the tokens that could not be parsed; those positions hold 0 in the array.
+class NumberParser {
+    static final int OK = 0, EMPTY = 1, INVALID = 2, OVERFLOW = 3;
+
+    static class Result {
+        final int count;
+        final int[] ints;
+        final long[] longs;
+        final double[] doubles;
+        final BitSet failed;
+
+        Result(int count, int[] ints, long[] longs, double[] doubles, BitSet failed) {
+            this.count = count;
+            this.ints = ints;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.failed = failed;
+        }
+
+        int failedCount() {
+            return failed.cardinality();
+        }
+    }
+
+    static OptionalInt tryParseInt(CharSequence s) {
+        long[] out = new long[1];
+        return parseInt(s, 0, s.length(), out, 0) == OK ? OptionalInt.of((int) out[0]) : OptionalInt.empty();
+    }
+
+    static OptionalLong tryParseLong(CharSequence s) {
+        long[] out = new long[1];
+        return parseLong(s, 0, s.length(), out, 0) == OK ? OptionalLong.of(out[0]) : OptionalLong.empty();
+    }
+
+    static OptionalDouble tryParseDouble(CharSequence s) {
+        double[] out = new double[1];
+        return parseDouble(s, 0, s.length(), out, 0) == OK ? OptionalDouble.of(out[0]) : OptionalDouble.empty();
+    }
+
+    // Parses s[from, to) into out[index] and returns a status code; out is untouched on failure.
+    // Strict: surrounding whitespace is INVALID here, only the bulk methods trim their tokens.
+    static int parseLong(CharSequence s, int from, int to, long[] out, int index) {
+        if (from == to) return EMPTY;
+        boolean negative = false;
+        char first = s.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) return INVALID;
+        }
+        // accumulate negatively, like Long.parseLong, so Long.MIN_VALUE is reachable
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multMin = limit / 10;
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return INVALID;
+            if (result < multMin) return OVERFLOW;
+            result *= 10;
+            if (result < limit + digit) return OVERFLOW;
+            result -= digit;
+        }
+        out[index] = negative ? result : -result;
+        return OK;
+    }
+
+    static int parseInt(CharSequence s, int from, int to, long[] out, int index) {
+        long saved = out[index];
+        int status = parseLong(s, from, to, out, index);
+        if (status == OK && (out[index] < Integer.MIN_VALUE || out[index] > Integer.MAX_VALUE)) {
+            out[index] = saved;
+            return OVERFLOW;
+        }
+        return status;
+    }
+
+    // Accepts [+-]digits[.digits][(e|E)[+-]digits]; the token is validated before
+    // Double.parseDouble sees it, so that call never throws.
+    static int parseDouble(CharSequence s, int from, int to, double[] out, int index) {
+        if (from == to) return EMPTY;
+        int i = from;
+        if (s.charAt(i) == '-' || s.charAt(i) == '+') i++;
+        int digits = 0;
+        while (i < to && isDigit(s.charAt(i))) { i++; digits++; }
+        if (i < to && s.charAt(i) == '.') {
+            i++;
+            while (i < to && isDigit(s.charAt(i))) { i++; digits++; }
+        }
+        if (digits == 0) return INVALID;
+        if (i < to && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < to && (s.charAt(i) == '-' || s.charAt(i) == '+')) i++;
+            int expDigits = 0;
+            while (i < to && isDigit(s.charAt(i))) { i++; expDigits++; }
+            if (expDigits == 0) return INVALID;
+        }
+        if (i != to) return INVALID;
+        out[index] = Double.parseDouble(s.subSequence(from, to).toString());
+        return OK;
+    }
+
+    static Result parseInts(CharSequence text, char separator) {
+        return parseInts(text, 0, text.length(), separator);
+    }
+
+    static Result parseLongs(CharSequence text, char separator) {
+        return parseLongs(text, 0, text.length(), separator);
+    }
+
+    static Result parseDoubles(CharSequence text, char separator) {
+        return parseDoubles(text, 0, text.length(), separator);
+    }
+
+    // Parse only text[from, end), without copying the slice.
+    static Result parseInts(CharSequence text, int from, int end, char separator) {
+        int count = countTokens(text, from, end, separator);
+        int[] values = new int[count];
+        long[] scratch = new long[1];
+        BitSet failed = new BitSet(count);
+        for (int token = 0; token < count; token++) {
+            int to = tokenEnd(text, from, end, separator);
+            int start = trimStart(text, from, to);
+            if (parseInt(text, start, trimEnd(text, start, to), scratch, 0) == OK) values[token] = (int) scratch[0];
+            else failed.set(token);
+            from = to + 1;
+        }
+        return new Result(count, values, null, null, failed);
+    }
+
+    static Result parseLongs(CharSequence text, int from, int end, char separator) {
+        int count = countTokens(text, from, end, separator);
+        long[] values = new long[count];
+        BitSet failed = new BitSet(count);
+        for (int token = 0; token < count; token++) {
+            int to = tokenEnd(text, from, end, separator);
+            int start = trimStart(text, from, to);
+            if (parseLong(text, start, trimEnd(text, start, to), values, token) != OK) failed.set(token);
+            from = to + 1;
+        }
+        return new Result(count, null, values, null, failed);
+    }
+
+    static Result parseDoubles(CharSequence text, int from, int end, char separator) {
+        int count = countTokens(text, from, end, separator);
+        double[] values = new double[count];
+        BitSet failed = new BitSet(count);
+        for (int token = 0; token < count; token++) {
+            int to = tokenEnd(text, from, end, separator);
+            int start = trimStart(text, from, to);
+            if (parseDouble(text, start, trimEnd(text, start, to), values, token) != OK) failed.set(token);
+            from = to + 1;
+        }
+        return new Result(count, null, null, values, failed);
+    }
+
+    // byte[] and ByteBuffer inputs are read in place as ASCII/Latin-1 text.
+    static Result parseInts(byte[] data, int offset, int length, char separator) {
+        return parseInts(new AsciiView(data, offset, length), separator);
+    }
+
+    static Result parseLongs(byte[] data, int offset, int length, char separator) {
+        return parseLongs(new AsciiView(data, offset, length), separator);
+    }
+
+    static Result parseDoubles(byte[] data, int offset, int length, char separator) {
+        return parseDoubles(new AsciiView(data, offset, length), separator);
+    }
+
+    static Result parseInts(ByteBuffer buf, char separator) { return parseInts(view(buf), separator); }
+    static Result parseLongs(ByteBuffer buf, char separator) { return parseLongs(view(buf), separator); }
+    static Result parseDoubles(ByteBuffer buf, char separator) { return parseDoubles(view(buf), separator); }
+
+    // Heap buffers are wrapped around their array; direct ones are read with absolute gets.
+    private static CharSequence view(ByteBuffer buf) {
+        if (buf.hasArray())
+            return new AsciiView(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        return new BufferView(buf, buf.position(), buf.remaining());
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int tokenEnd(CharSequence text, int from, int end, char separator) {
+        while (from < end && text.charAt(from) != separator) from++;
+        return from;
+    }
+
+    private static int trimStart(CharSequence text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(CharSequence text, int from, int to) {
+        while (to > from && text.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+
+    private static int countTokens(CharSequence text, int from, int end, char separator) {
+        int count = 1, last = from;
+        for (int i = from; i < end; i++)
+            if (text.charAt(i) == separator) {
+                count++;
+                last = i + 1;
             }
+        // a trailing empty (or blank) token, e.g. after a final newline, is not a token
+        boolean blankTail = true;
+        for (int i = last; i < end && blankTail; i++) blankTail = text.charAt(i) <= ' ';
+        return blankTail ? count - 1 : count;
+    }
+
+    private static final class AsciiView implements CharSequence {
+        private final byte[] data;
+        private final int offset, length;
+
+        AsciiView(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() { return length; }
+        public char charAt(int i) { return (char) (data[offset + i] & 0xFF); }
+        public CharSequence subSequence(int from, int to) { return new AsciiView(data, offset + from, to - from); }
+        public String toString() { return new String(data, offset, length, StandardCharsets.ISO_8859_1); }
+    }
+
+    private static final class BufferView implements CharSequence {
+        private final ByteBuffer buf;
+        private final int offset, length;
+
+        BufferView(ByteBuffer buf, int offset, int length) {
+            this.buf = buf;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() { return length; }
+        public char charAt(int i) { return (char) (buf.get(offset + i) & 0xFF); }
+        public CharSequence subSequence(int from, int to) { return new BufferView(buf, offset + from, to - from); }
+
+        public String toString() {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) bytes[i] = buf.get(offset + i);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
         }
     }
 }
 
+// Exercises 47-48: parameterized logging facade over java.util.logging.
+// Nothing is formatted unless the level is loggable, and the message is assembled in a
+// per-thread StringBuilder that is reused across calls, so the only allocation on an enabled
+// record is the final String and LogRecord that java.util.logging itself requires. Passing the
+// source class and method explicitly spares JUL its stack walk to infer the caller while still
+// showing both in SimpleFormatter output. Templates take up to two "{}" placeholders.
+class LogFacade {
+    private static final int MAX_RETAINED = 4096;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final Logger logger;
+    private final String sourceClass;
+    private final String sourceMethod;
+
+    LogFacade(Logger logger, String sourceClass, String sourceMethod) {
+        this.logger = logger;
+        this.sourceClass = sourceClass;
+        this.sourceMethod = sourceMethod;
+    }
+
+    boolean isEnabled(Level level) {
+        return logger.isLoggable(level);
+    }
+
+    void info(String message) { log(Level.INFO, message); }
+    void info(String template, double arg) { log(Level.INFO, template, arg); }
+    void info(String template, long arg) { log(Level.INFO, template, arg); }
+    void info(String template, CharSequence arg) { log(Level.INFO, template, arg); }
+    void warning(String message) { log(Level.WARNING, message); }
+    void warning(String template, double arg) { log(Level.WARNING, template, arg); }
+    void warning(String template, long arg) { log(Level.WARNING, template, arg); }
+    void warning(String template, CharSequence arg) { log(Level.WARNING, template, arg); }
+    void info(String template, Object arg1, Object arg2) { log(Level.INFO, template, arg1, arg2); }
+    void warning(String template, Object arg1, Object arg2) { log(Level.WARNING, template, arg1, arg2); }
+
+    void log(Level level, String message) {
+        if (logger.isLoggable(level)) logger.logp(level, sourceClass, sourceMethod, message);
+    }
+
+    void log(Level level, String template, double arg) {
+        if (!logger.isLoggable(level)) return;
+        StringBuilder sb = buffer();
+        int at = prefix(sb, template);
+        if (at >= 0) sb.append(arg);
+        emit(level, sb, template, at);
+    }
+
+    void log(Level level, String template, long arg) {
+        if (!logger.isLoggable(level)) return;
+        StringBuilder sb = buffer();
+        int at = prefix(sb, template);
+        if (at >= 0) sb.append(arg);
+        emit(level, sb, template, at);
+    }
+
+    void log(Level level, String template, CharSequence arg) {
+        if (!logger.isLoggable(level)) return;
+        StringBuilder sb = buffer();
+        int at = prefix(sb, template);
+        if (at >= 0) sb.append(arg);
+        emit(level, sb, template, at);
+    }
+
+    void log(Level level, String template, Object arg1, Object arg2) {
+        if (!logger.isLoggable(level)) return;
+        StringBuilder sb = buffer();
+        int at = prefix(sb, template);
+        if (at < 0) {
+            emit(level, sb, template, at);
+            return;
+        }
+        sb.append(arg1);
+        int second = template.indexOf("{}", at + 2);
+        if (second >= 0) sb.append(template, at + 2, second).append(arg2);
+        emit(level, sb, template, second >= 0 ? second : at);
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFER.get();
+        if (sb.capacity() > MAX_RETAINED) {
+            // do not pin one huge message's buffer to the thread forever
+            sb = new StringBuilder(256);
+            BUFFER.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    // Appends the template up to its "{}" placeholder and returns the placeholder index, or -1.
+    private static int prefix(StringBuilder sb, String template) {
+        int at = template.indexOf("{}");
+        sb.append(template, 0, at >= 0 ? at : template.length());
+        return at;
+    }
+
+    private void emit(Level level, StringBuilder sb, String template, int at) {
+        if (at >= 0) sb.append(template, at + 2, template.length());
+        logger.logp(level, sourceClass, sourceMethod, sb.toString());
+    }
+}
+
+// Exercises 47-48: rate limiting and deduplication in front of a LogFacade.
+// Messages are grouped by key (the template unless given explicitly). Each key has a token
+// bucket; what the bucket rejects is counted and reported as "suppressed N similar messages"
+// at most once per summary interval, on the next call for that key or, once a flood stops, from
+// a shared daemon flusher. close() reports whatever is still pending and must be called while
+// the target's handlers are open: the shutdown hook is only a best effort, since JUL closes its
+// handlers from a hook of its own that may run first.
+class RateLimitedLog implements AutoCloseable {
+    static final class KeyStats {
+        final LongAdder total = new LongAdder();
+        final LongAdder suppressedTotal = new LongAdder();
+        private final AtomicLong pendingSuppressed = new AtomicLong();
+        private double tokens;
+        private long lastRefill;
+        private volatile long nextSummaryAt;
+
+        long total() { return total.sum(); }
+        long suppressed() { return suppressedTotal.sum(); }
+    }
+
+    private final LogFacade target;
+    private final double permitsPerNano;
+    private final int burst;
+    private final long summaryIntervalNanos;
+    private final ConcurrentHashMap<String, KeyStats> keys = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "log-summary-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ScheduledFuture<?> flushTask;
+    private final Thread shutdownHook;
+
+    // The flusher and the hook keep the instance reachable until close().
+    RateLimitedLog(LogFacade target, double permitsPerSecond, int burst, long summaryIntervalMillis) {
+        this.target = target;
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.burst = burst;
+        this.summaryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(summaryIntervalMillis);
+        this.flushTask = flusher.scheduleAtFixedRate(this::flushDue, summaryIntervalMillis, summaryIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        this.shutdownHook = new Thread(this::flushSummaries, "log-summary-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    void warning(String message) {
+        if (admit(message, message)) target.warning(message);
+    }
+
+    void warning(String template, CharSequence arg) {
+        if (admit(template, template)) target.warning(template, arg);
+    }
+
+    void warning(String template, double arg) {
+        if (admit(template, template)) target.warning(template, arg);
+    }
+
+    void warning(String key, String template, CharSequence arg) {
+        if (admit(key, template)) target.warning(template, arg);
+    }
+
+    KeyStats stats(String key) {
+        return keys.get(key);
+    }
+
+    // Emits any pending summaries immediately, e.g. before shutdown.
+    void flushSummaries() {
+        keys.forEach((key, stats) -> summarize(key, stats, System.nanoTime()));
+    }
+
+    // Flushes pending summaries and releases the scheduled flush and the shutdown hook.
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down: the hook is running or about to
+        }
+        flushSummaries();
+    }
+
+    // Reports keys whose interval has elapsed without a new call to trigger the summary.
+    private void flushDue() {
+        long now = System.nanoTime();
+        keys.forEach((key, stats) -> {
+            if (now - stats.nextSummaryAt >= 0) summarize(key, stats, now);
+        });
+    }
+
+    private boolean admit(String key, String template) {
+        KeyStats stats = keys.computeIfAbsent(key, k -> {
+            KeyStats fresh = new KeyStats();
+            fresh.tokens = burst;
+            fresh.lastRefill = System.nanoTime();
+            fresh.nextSummaryAt = fresh.lastRefill + summaryIntervalNanos;
+            return fresh;
+        });
+        stats.total.increment();
+        long now = System.nanoTime();
+        boolean allowed;
+        synchronized (stats) {
+            stats.tokens = Math.min(burst, stats.tokens + (now - stats.lastRefill) * permitsPerNano);
+            stats.lastRefill = now;
+            allowed = stats.tokens >= 1;
+            if (allowed) stats.tokens -= 1;
+        }
+        if (!allowed) {
+            stats.suppressedTotal.increment();
+            stats.pendingSuppressed.incrementAndGet();
+        }
+        if (now - stats.nextSummaryAt >= 0) summarize(key, stats, now);
+        return allowed;
+    }
+
+    private void summarize(String key, KeyStats stats, long now) {
+        stats.nextSummaryAt = now + summaryIntervalNanos;
+        long n = stats.pendingSuppressed.getAndSet(0);
+        if (n > 0) target.warning("Suppressed {} similar messages for \"" + key + "\"", n);
+    }
+}
+
 // Exercise 49
 class LoginException extends Exception {
     public LoginException(String message) {
         super(message);
     }
+
+    // Cheap variant for hot failure paths: with writableStackTrace false neither a stack trace
+    // nor suppressed exceptions are recorded; with true it behaves like the other constructors.
+    public LoginException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
+    }
 }
 
 class LoginSystem {
@@ -122,26 +803,213 @@ class LoginSystem {
     private static final String PASS = "1234";
 
     public static void login() throws LoginException {
-        try (Scanner scanner = new Scanner(System.in)) {
-            int attempts = 0;
-            while (attempts < 3) {
-                System.out.print("Username: ");
-                String user = scanner.next();
-                System.out.print("Password: ");
-                String pass = scanner.next();
-                if (USER.equals(user) && PASS.equals(pass)) {
-                    System.out.println("Login successful!");
-                    return;
-                } else {
-                    attempts++;
-                    System.out.println("Invalid credentials.");
-                }
+        FastScanner scanner = FastScanner.stdin();
+        int attempts = 0;
+        while (attempts < 3) {
+            System.out.print("Username: ");
+            String user = scanner.next();
+            System.out.print("Password: ");
+            String pass = scanner.next();
+            if (USER.equals(user) && PASS.equals(pass)) {
+                System.out.println("Login successful!");
+                return;
+            } else {
+                attempts++;
+                System.out.println("Invalid credentials.");
+            }
+        }
+        throw new LoginException("Too many failed attempts. Access blocked.");
+    }
+}
+
+// Exercise 49: login service for many concurrent sessions.
+// Passwords are stored as salted PBKDF2 hashes and compared in constant time. Failed attempts
+// are counted per user and per IP in a striped map whose windows expire on their own; too
+// many failures lock the user or IP until the window ends. PBKDF2 is deliberately slow, so at
+// most hashPermits verifications run at once and a successful verification is remembered for
+// a short time as a cheap SHA-256 digest, which keeps a login storm inside a fixed CPU budget.
+class LoginService {
+    enum Result { SUCCESS, INVALID, LOCKED, BUSY }
+
+    private static final int ITERATIONS = 10_000;
+    private static final int MAX_USER_FAILURES = 3;
+    private static final int MAX_IP_FAILURES = 20;
+    private static final long HASH_WAIT_MS = 100;
+
+    private static final class Credential {
+        final byte[] salt, hash;
+
+        Credential(byte[] salt, byte[] hash) {
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+    // Tied to the credential it was verified against: a put that races with register() leaves
+    // an entry for the old credential, which the identity check in login() then ignores.
+    private static final class CachedVerification {
+        final Credential credential;
+        final byte[] digest;
+        final long expiresAt;
+
+        CachedVerification(Credential credential, byte[] digest, long expiresAt) {
+            this.credential = credential;
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Credential> credentials = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CachedVerification> verified = new ConcurrentHashMap<>();
+    private final AttemptCounter userFailures;
+    private final AttemptCounter ipFailures;
+    private final Semaphore hashPermits;
+    private final long cacheTtlNanos;
+    private final SecureRandom random = new SecureRandom();
+
+    LoginService(int hashPermits, Duration lockWindow, Duration cacheTtl) {
+        this.hashPermits = new Semaphore(hashPermits);
+        this.userFailures = new AttemptCounter(lockWindow);
+        this.ipFailures = new AttemptCounter(lockWindow);
+        this.cacheTtlNanos = cacheTtl.toNanos();
+    }
+
+    void register(String user, char[] password) {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        credentials.put(user, new Credential(salt, pbkdf2(password, salt)));
+        verified.remove(user);
+    }
+
+    Result login(String user, char[] password, String ip) {
+        if (userFailures.count(user) >= MAX_USER_FAILURES || ipFailures.count(ip) >= MAX_IP_FAILURES)
+            return Result.LOCKED;
+        Credential credential = credentials.get(user);
+        // unknown users still pay for a hash, so timing does not reveal which names exist
+        byte[] salt = credential != null ? credential.salt : new byte[16];
+
+        CachedVerification cached = verified.get(user);
+        if (cached != null && cached.credential == credential && System.nanoTime() - cached.expiresAt < 0
+                && MessageDigest.isEqual(cached.digest, sha256(salt, password)))
+            return succeed(user);
+
+        try {
+            if (!hashPermits.tryAcquire(HASH_WAIT_MS, TimeUnit.MILLISECONDS)) return Result.BUSY;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.BUSY;
+        }
+        byte[] hash;
+        try {
+            hash = pbkdf2(password, salt);
+        } finally {
+            hashPermits.release();
+        }
+        if (credential != null && MessageDigest.isEqual(hash, credential.hash)) {
+            verified.put(user, new CachedVerification(credential, sha256(salt, password), System.nanoTime() + cacheTtlNanos));
+            return succeed(user);
+        }
+        userFailures.increment(user);
+        ipFailures.increment(ip);
+        return Result.INVALID;
+    }
+
+    void loginOrThrow(String user, char[] password, String ip) throws LoginException {
+        Result result = login(user, password, ip);
+        // failed logins are expected under attack, so skip the stack trace
+        if (result != Result.SUCCESS) throw new LoginException("Login failed: " + result, null, false);
+    }
+
+    private Result succeed(String user) {
+        userFailures.reset(user);
+        return Result.SUCCESS;
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt) {
+        try {
+            SecretKeyFactory f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            return f.generateSecret(new PBEKeySpec(password, salt, ITERATIONS, 256)).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 not available", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] salt, char[] password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(salt);
+            for (char c : password) {
+                md.update((byte) (c >> 8));
+                md.update((byte) c);
             }
-            throw new LoginException("Too many failed attempts. Access blocked.");
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
 
+// Failure counters in fixed windows, spread over independently locked stripes so that
+// concurrent attempts for different keys rarely contend. Expired windows are dropped lazily.
+class AttemptCounter {
+    private static final int STRIPES = 64;
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private static final class Window {
+        int count;
+        long startedAt;
+    }
+
+    private final long windowNanos;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final HashMap<String, Window>[] stripes = new HashMap[STRIPES];
+
+    AttemptCounter(Duration window) {
+        this.windowNanos = window.toNanos();
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new HashMap<>();
+    }
+
+    int count(String key) {
+        HashMap<String, Window> stripe = stripe(key);
+        synchronized (stripe) {
+            Window w = stripe.get(key);
+            if (w == null) return 0;
+            if (System.nanoTime() - w.startedAt >= windowNanos) {
+                stripe.remove(key);
+                return 0;
+            }
+            return w.count;
+        }
+    }
+
+    int increment(String key) {
+        HashMap<String, Window> stripe = stripe(key);
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            if (stripe.size() > SWEEP_THRESHOLD)
+                stripe.values().removeIf(w -> now - w.startedAt >= windowNanos);
+            Window w = stripe.computeIfAbsent(key, k -> new Window());
+            if (w.count == 0 || now - w.startedAt >= windowNanos) {
+                w.count = 0;
+                w.startedAt = now;
+            }
+            return ++w.count;
+        }
+    }
+
+    void reset(String key) {
+        HashMap<String, Window> stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.remove(key);
+        }
+    }
+
+    private HashMap<String, Window> stripe(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
+
 // Exercise 50
 class FileProcessor {
     public static void readFile() throws IOException {
@@ -166,18 +1034,69 @@ class LibraryException extends Exception {
     public LibraryException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    public LibraryException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
+    }
 }
 
 class LibraryMethod {
+    static final ExceptionTranslator translator = new ExceptionTranslator(ExceptionTranslator.Mode.SAMPLED, 100);
+
     public static void callThirdParty() throws LibraryException {
         try {
             throw new RuntimeException("Third-party failure");
         } catch (RuntimeException e) {
-            throw new LibraryException("Wrapped exception", e);
+            throw translator.translate("Wrapped exception", e, LibraryException::new);
         }
     }
 }
 
+// Exercise 51: wrapping without paying for a stack trace every time.
+// The cause keeps its own trace, so a stackless wrapper still says where the failure started;
+// only the wrapper's (mostly redundant) trace is skipped. SAMPLED keeps one full trace every
+// sampleEvery translations so there is always a recent example to look at.
+class ExceptionTranslator {
+    enum Mode { FULL, STACKLESS, SAMPLED }
+
+    interface Factory<X extends Exception> {
+        X create(String message, Throwable cause, boolean writableStackTrace);
+    }
+
+    private final Mode mode;
+    private final int sampleEvery;
+    private final AtomicLong translations = new AtomicLong();
+    private final ConcurrentHashMap<Class<?>, LongAdder> byCauseType = new ConcurrentHashMap<>();
+
+    ExceptionTranslator(Mode mode, int sampleEvery) {
+        if (sampleEvery < 1) throw new IllegalArgumentException("sampleEvery must be at least 1");
+        this.mode = mode;
+        this.sampleEvery = sampleEvery;
+    }
+
+    <X extends Exception> X translate(String message, Throwable cause, Factory<X> factory) {
+        byCauseType.computeIfAbsent(cause.getClass(), c -> new LongAdder()).increment();
+        long n = translations.getAndIncrement();
+        boolean withStack = switch (mode) {
+            case FULL -> true;
+            case STACKLESS -> false;
+            case SAMPLED -> n % sampleEvery == 0;
+        };
+        return factory.create(message, cause, withStack);
+    }
+
+    long count(Class<?> causeType) {
+        LongAdder adder = byCauseType.get(causeType);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    Map<Class<?>, Long> counts() {
+        Map<Class<?>, Long> snapshot = new HashMap<>();
+        byCauseType.forEach((type, adder) -> snapshot.put(type, adder.sum()));
+        return snapshot;
+    }
+}
+
 // Exercises 52, 53, 54
 enum LogLevel { INFO, WARNING, ERROR }
 
@@ -188,16 +1107,41 @@ abstract class LoggerHandler {
         this.next = next;
     }
 
+    protected final HandlerMetrics metrics = new HandlerMetrics();
+
     public void log(LogLevel level, String message) {
-        if (!handle(level, message) && next != null) {
+        if (!dispatch(level, message) && next != null) {
             next.log(level, message);
         }
     }
 
+    // handle() plus timing and counting; every caller of handle() goes through here.
+    final boolean dispatch(LogLevel level, String message) {
+        if (!HandlerMetrics.enabled) return handle(level, message);
+        long start = System.nanoTime();
+        boolean handled = handle(level, message);
+        metrics.record(level, handled, System.nanoTime() - start);
+        return handled;
+    }
+
+    public HandlerMetrics metrics() {
+        return metrics;
+    }
+
     protected abstract boolean handle(LogLevel level, String message);
+
+    // Levels this handler may accept; used to precompile the chain. Handlers that cannot tell
+    // in advance keep the default and are offered every level.
+    protected boolean accepts(LogLevel level) {
+        return true;
+    }
 }
 
 class ConsoleLogger extends LoggerHandler {
+    protected boolean accepts(LogLevel level) {
+        return level == LogLevel.INFO;
+    }
+
     protected boolean handle(LogLevel level, String message) {
         if (level == LogLevel.INFO) {
             System.out.println("Console: " + message);
@@ -208,16 +1152,247 @@ class ConsoleLogger extends LoggerHandler {
 }
 
 class FileLogger extends LoggerHandler {
+    private final RollingFileAppender appender;
+
+    public FileLogger() {
+        this(null);
+    }
+
+    // With an appender the records go to a real file instead of stdout.
+    public FileLogger(RollingFileAppender appender) {
+        this.appender = appender;
+    }
+
+    protected boolean accepts(LogLevel level) {
+        return level == LogLevel.WARNING;
+    }
+
     protected boolean handle(LogLevel level, String message) {
         if (level == LogLevel.WARNING) {
-            System.out.println("File: " + message);
+            if (appender != null) appender.append(level, message);
+            else System.out.println("File: " + message);
             return true;
         }
         return false;
     }
 }
 
+// Exercise 53: rolling file appender with group commit.
+// Callers encode records as UTF-8 straight into a direct buffer; a writer thread swaps it with
+// a second buffer and writes everything collected so far in one FileChannel call, optionally
+// followed by one force(false) for the whole batch. Files are rotated by size or age and the
+// rotated file is gzipped on a separate thread.
+class RollingFileAppender implements AutoCloseable {
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Path file;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final boolean forceEachBatch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataReady = lock.newCondition();
+    private final Condition bufferFree = lock.newCondition();
+    private ByteBuffer active, spare;
+    private FileChannel channel;
+    private long fileBytes;
+    private long openedAt;
+    private int rotations;
+    private volatile boolean closed;
+    private final Thread writer;
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "log-compressor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RollingFileAppender(Path file, int bufferBytes, long maxBytes, Duration maxAge) throws IOException {
+        this(file, bufferBytes, maxBytes, maxAge, false);
+    }
+
+    // With forceEachBatch every batch is on disk before the writer takes the next one.
+    public RollingFileAppender(Path file, int bufferBytes, long maxBytes, Duration maxAge,
+                               boolean forceEachBatch) throws IOException {
+        // append() needs room for a record header plus at least a few characters of message
+        if (bufferBytes < 128)
+            throw new IllegalArgumentException("Buffer must be at least 128 bytes: " + bufferBytes);
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        if (maxAge.isNegative() || maxAge.isZero())
+            throw new IllegalArgumentException("maxAge must be positive: " + maxAge);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.forceEachBatch = forceEachBatch;
+        this.active = ByteBuffer.allocateDirect(bufferBytes);
+        this.spare = ByteBuffer.allocateDirect(bufferBytes);
+        open();
+        writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Blocks only while both buffers are full. Records that do not fit in an empty buffer are truncated.
+    public void append(LogLevel level, CharSequence message) {
+        int maxChars = (active.capacity() - 64) / 3;
+        if (message.length() > maxChars) message = message.subSequence(0, maxChars);
+        int needed = 40 + message.length() * 3;
+        lock.lock();
+        try {
+            while (active.remaining() < needed) {
+                if (closed) throw new IllegalStateException("Appender is closed");
+                dataReady.signal();
+                bufferFree.awaitUninterruptibly();
+            }
+            if (closed) throw new IllegalStateException("Appender is closed");
+            putDecimal(active, System.currentTimeMillis());
+            active.put((byte) ' ');
+            putUtf8(active, level.name());
+            active.put((byte) ' ');
+            putUtf8(active, message);
+            active.put((byte) '\n');
+            if (active.position() > active.capacity() / 2) dataReady.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean idle;
+            lock.lock();
+            try {
+                long wait = FLUSH_INTERVAL_NANOS;
+                while (active.position() == 0 && !closed && wait > 0)
+                    wait = dataReady.awaitNanos(wait);
+                if (active.position() == 0 && closed) return;
+                // on a timeout with nothing buffered there is no batch, only the age check below
+                idle = active.position() == 0;
+                if (!idle) {
+                    ByteBuffer full = active;
+                    active = spare;
+                    spare = full;
+                    bufferFree.signalAll();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            // spare is only touched by this thread until the next swap
+            try {
+                if (!idle) {
+                    spare.flip();
+                    while (spare.hasRemaining()) fileBytes += channel.write(spare);
+                    spare.clear();
+                    if (forceEachBatch) channel.force(false);
+                }
+                // checked on idle wakeups too, so a quiet file still rotates by age
+                if (fileBytes >= maxBytes || System.currentTimeMillis() - openedAt >= maxAgeMillis)
+                    rotate();
+            } catch (IOException e) {
+                e.printStackTrace();
+                spare.clear();
+            }
+        }
+    }
+
+    // Assigns channel only once the file is open, so a failure leaves the current one in place.
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void rotate() throws IOException {
+        if (fileBytes == 0) {
+            openedAt = System.currentTimeMillis();
+            return;
+        }
+        // Move first and swap channels after: if the move fails the old channel is still open
+        // and the next batch retries; if the new file cannot be opened we keep appending to the
+        // rotated one rather than losing records.
+        Path rotated = file.resolveSibling(file.getFileName() + "." + System.currentTimeMillis() + "-" + rotations++);
+        Files.move(file, rotated);
+        FileChannel old = channel;
+        open();
+        old.close();
+        compressor.submit(() -> compress(rotated));
+    }
+
+    private static void compress(Path rotated) {
+        Path gz = rotated.resolveSibling(rotated.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(rotated);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.delete(rotated);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Flushes what is buffered, closes the file and waits for pending compressions.
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            dataReady.signal();
+            bufferFree.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+            compressor.shutdown();
+            compressor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private static void putDecimal(ByteBuffer buf, long value) {
+        if (value == 0) {
+            buf.put((byte) '0');
+            return;
+        }
+        int start = buf.position();
+        for (; value > 0; value /= 10) buf.put((byte) ('0' + value % 10));
+        for (int i = start, j = buf.position() - 1; i < j; i++, j--) {
+            byte t = buf.get(i);
+            buf.put(i, buf.get(j));
+            buf.put(j, t);
+        }
+    }
+
+    private static void putUtf8(ByteBuffer buf, CharSequence s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                   .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else {
+                buf.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
+
 class EmailLogger extends LoggerHandler {
+    protected boolean accepts(LogLevel level) {
+        return level == LogLevel.ERROR;
+    }
+
     protected boolean handle(LogLevel level, String message) {
         if (level == LogLevel.ERROR) {
             System.out.println("Email: " + message);
@@ -227,6 +1402,359 @@ class EmailLogger extends LoggerHandler {
     }
 }
 
+// Exercises 52-53: per-handler counters and latency histograms.
+// Counts are LongAdders and latencies go into log-bucketed histograms (8 sub-buckets per power
+// of two, so any recorded value is within 12.5% of its bucket), all lock-free. A snapshot is
+// available from code, and registerJmx publishes the same numbers as a read-only MBean.
+class HandlerMetrics {
+    static volatile boolean enabled = true;
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+    private final LongAdder[] handled = new LongAdder[LEVELS.length];
+    private final LongAdder[] passed = new LongAdder[LEVELS.length];
+    private final LatencyHistogram[] latency = new LatencyHistogram[LEVELS.length];
+
+    HandlerMetrics() {
+        for (int i = 0; i < LEVELS.length; i++) {
+            handled[i] = new LongAdder();
+            passed[i] = new LongAdder();
+            latency[i] = new LatencyHistogram();
+        }
+    }
+
+    void record(LogLevel level, boolean wasHandled, long nanos) {
+        int i = level.ordinal();
+        (wasHandled ? handled[i] : passed[i]).increment();
+        latency[i].record(nanos);
+    }
+
+    long handled(LogLevel level) { return handled[level.ordinal()].sum(); }
+    long passed(LogLevel level) { return passed[level.ordinal()].sum(); }
+    LatencyHistogram latency(LogLevel level) { return latency[level.ordinal()]; }
+
+    // Flat name -> value view, e.g. "INFO.handled", "INFO.p99Nanos".
+    Map<String, Long> snapshot() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (LogLevel level : LEVELS) {
+            long[] counts = latency(level).counts();
+            values.put(level + ".handled", handled(level));
+            values.put(level + ".passed", passed(level));
+            values.put(level + ".p50Nanos", LatencyHistogram.percentile(counts, 50));
+            values.put(level + ".p99Nanos", LatencyHistogram.percentile(counts, 99));
+            values.put(level + ".p999Nanos", LatencyHistogram.percentile(counts, 99.9));
+            values.put(level + ".maxNanos", LatencyHistogram.percentile(counts, 100));
+        }
+        return values;
+    }
+
+    void registerJmx(String handlerName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name =
+                    new ObjectName("M4.logging:type=LoggerHandler,name=" + handlerName);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(new MetricsMBean(this), name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics for " + handlerName, e);
+        }
+    }
+
+    // Dynamic MBean so the attribute list follows LogLevel without a hand-written interface.
+    private static final class MetricsMBean implements DynamicMBean {
+        private final HandlerMetrics metrics;
+
+        MetricsMBean(HandlerMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = metrics.snapshot().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Long> snapshot = metrics.snapshot();
+            AttributeList list = new AttributeList();
+            for (String a : attributes)
+                if (snapshot.containsKey(a)) list.add(new Attribute(a, snapshot.get(a)));
+            return list;
+        }
+
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Read-only: " + attribute.getName());
+        }
+
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(action));
+        }
+
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            for (String key : metrics.snapshot().keySet())
+                attrs.add(new MBeanAttributeInfo(key, "long", key, true, false, false));
+            return new MBeanInfo(HandlerMetrics.class.getName(), "Logger handler metrics",
+                    attrs.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
+
+class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_BUCKETS);
+
+    void record(long nanos) {
+        buckets.incrementAndGet(index(Math.max(0, nanos)));
+    }
+
+    long[] counts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) counts[i] = buckets.get(i);
+        return counts;
+    }
+
+    // Upper bound of the bucket holding the p-th percentile, 0 if nothing was recorded.
+    static long percentile(long[] counts, double p) {
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * p / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i + 1 < counts.length ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exp - SUB_BITS);
+    }
+}
+
+// Exercises 52-53: the chain compiled into a per-level dispatch table.
+// Instead of walking the links on every call, each LogLevel indexes the handlers that accept
+// it, so isEnabled is one array read and a disabled level never builds its message.
+// A logger compiled from a chain keeps the chain's semantics (the first handler whose handle()
+// returns true wins); one built with Builder fans out to every handler registered for the level.
+class CompiledLogger {
+    private static final LoggerHandler[] NONE = new LoggerHandler[0];
+    private final LoggerHandler[][] table = new LoggerHandler[LogLevel.values().length][];
+    private final boolean firstMatch;
+
+    private CompiledLogger(EnumMap<LogLevel, List<LoggerHandler>> handlers, boolean firstMatch) {
+        this.firstMatch = firstMatch;
+        for (LogLevel level : LogLevel.values()) {
+            List<LoggerHandler> list = handlers.get(level);
+            table[level.ordinal()] = list == null ? NONE : list.toArray(NONE);
+        }
+    }
+
+    public static CompiledLogger compile(LoggerHandler chain) {
+        Builder builder = new Builder();
+        for (LoggerHandler h = chain; h != null; h = h.next)
+            for (LogLevel level : LogLevel.values())
+                if (h.accepts(level)) builder.on(level, h);
+        return new CompiledLogger(builder.handlers, true);
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return table[level.ordinal()].length > 0;
+    }
+
+    // Handlers are offered the message in registration order; see the class comment for when it stops.
+    public void log(LogLevel level, String message) {
+        for (LoggerHandler h : table[level.ordinal()])
+            if (h.dispatch(level, message) && firstMatch) return;
+    }
+
+    public void log(LogLevel level, Supplier<String> message) {
+        if (isEnabled(level)) log(level, message.get());
+    }
+
+    public void log(LogLevel level, String template, Object arg) {
+        if (isEnabled(level)) log(level, format(template, arg));
+    }
+
+    public void log(LogLevel level, String template, Object arg1, Object arg2) {
+        if (isEnabled(level)) log(level, format(template, arg1, arg2));
+    }
+
+    public void log(LogLevel level, String template, Object... args) {
+        if (isEnabled(level)) log(level, format(template, args));
+    }
+
+    // Replaces each "{}" with the next argument; extra placeholders are left as they are.
+    static String format(String template, Object... args) {
+        StringBuilder sb = new StringBuilder(template.length() + 16 * args.length);
+        int from = 0, arg = 0;
+        for (int at; arg < args.length && (at = template.indexOf("{}", from)) >= 0; from = at + 2)
+            sb.append(template, from, at).append(args[arg++]);
+        return sb.append(template, from, template.length()).toString();
+    }
+
+    static class Builder {
+        private final EnumMap<LogLevel, List<LoggerHandler>> handlers = new EnumMap<>(LogLevel.class);
+
+        public Builder on(LogLevel level, LoggerHandler handler) {
+            handlers.computeIfAbsent(level, l -> new ArrayList<>()).add(handler);
+            return this;
+        }
+
+        public CompiledLogger build() {
+            return new CompiledLogger(handlers, false);
+        }
+    }
+}
+
+// Exercises 52-53: asynchronous front end for the chain.
+// Producers claim a slot in a preallocated ring with a CAS and publish it by writing the slot's
+// sequence; a single consumer thread drains published slots in batches through the chain.
+class AsyncLogger implements AutoCloseable {
+    enum Overflow { BLOCK, DROP, SAMPLE }
+
+    private static final int MAX_BATCH = 256;
+    private static final int SAMPLE_RATE = 16;
+
+    private static final class Slot {
+        LogLevel level;
+        String message;
+    }
+
+    private final LoggerHandler chain;
+    private final Overflow overflow;
+    private final Slot[] ring;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final Thread consumer;
+    private volatile boolean closed;
+    // Set by the consumer before it parks on an empty ring; producers unpark it only then.
+    private volatile boolean idle;
+
+    public AsyncLogger(LoggerHandler chain, int capacity, Overflow overflow) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        this.chain = chain;
+        this.overflow = overflow;
+        this.ring = new Slot[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+            published.set(i, -1);
+        }
+        consumer = new Thread(this::drainLoop, "async-logger");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    // Returns false if the event was dropped by the overflow policy or the logger is closed.
+    public boolean log(LogLevel level, String message) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        long seq;
+        while (true) {
+            seq = claimed.get();
+            long depth = seq - consumed.get();
+            if (depth >= ring.length) {
+                if (overflow == Overflow.BLOCK && !closed) {
+                    LockSupport.parkNanos(1_000);
+                    continue;
+                }
+                dropped.incrementAndGet();
+                return false;
+            }
+            // SAMPLE keeps 1 in SAMPLE_RATE events once the ring is more than half full
+            if (overflow == Overflow.SAMPLE && depth > ring.length / 2
+                    && sampleCounter.getAndIncrement() % SAMPLE_RATE != 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) break;
+        }
+        Slot slot = ring[(int) seq & mask];
+        slot.level = level;
+        slot.message = message;
+        published.set((int) seq & mask, seq);
+        // published is written before idle is read and the consumer does the reverse, so
+        // either it sees this slot or we see it idle: the wakeup cannot be lost
+        if (idle) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    public long queueDepth() {
+        return claimed.get() - consumed.get();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int drained = drainBatch();
+            if (drained == 0) {
+                if (closed && consumed.get() == claimed.get()) return;
+                idle = true;
+                long next = consumed.get();
+                if (published.get((int) next & mask) != next && !closed) LockSupport.park(this);
+                idle = false;
+            }
+        }
+    }
+
+    private int drainBatch() {
+        long next = consumed.get();
+        int n = 0;
+        while (n < MAX_BATCH && published.get((int) next & mask) == next) {
+            Slot slot = ring[(int) next & mask];
+            try {
+                chain.log(slot.level, slot.message);
+            } catch (RuntimeException e) {
+                // one bad handler must not kill the consumer thread
+                System.err.println("AsyncLogger: handler failed: " + e);
+            }
+            slot.message = null;
+            next++;
+            n++;
+        }
+        if (n > 0) consumed.set(next);
+        return n;
+    }
+
+    // Stops accepting events, drains what is already queued and waits for the consumer.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
 // Exercise 55
 class UnsafeCatcher {
     public static void riskyOperation() {
@@ -1,8 +1,20 @@
 
 // M5 - Collezioni, Stream, Generics, Comparator, Optional, Iterator
 
+import java.lang.invoke.VarHandle;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.*;
 
 public class M5 {
@@ -38,6 +50,12 @@ public class M5 {
         room.add(matchmaking.poll());
         System.out.println("Stanza: " + room);
         //Matchmaking è FIFO -> coda perfetta per accodare i giocatori
+        MatchmakingEngine engine = new MatchmakingEngine(2, 100, 3000, 5000, r -> System.out.println("Stanza bilanciata: " + r));
+        engine.enqueue(new Player("Nami"), 1200);
+        engine.enqueue(new Player("Usopp"), 1250);
+        engine.enqueue(new Player("Sanji"), 2400);
+        engine.tick();
+        System.out.println("In coda: " + engine.waiting() + ", attesa p50 ms: " + engine.queueTimePercentile(50));
 
         // 59 - Statistiche e achievements
         Map<Player, PlayerData> data = new HashMap<>();
@@ -51,6 +69,9 @@ public class M5 {
         log.log("Enemy defeated");
         for (String e : log)
             System.out.println("Evento recente: " + e);
+        ConcurrentGameEventLog shared = new ConcurrentGameEventLog();
+        IntStream.range(0, 4).parallel().forEach(i -> shared.log("Tick " + i));
+        shared.drain(100, (ts, msg) -> System.out.println("Drenato: " + msg));
 
         // 61 - Comparable vs Comparator
         List<CCharacter> chars = List.of(
@@ -60,6 +81,9 @@ public class M5 {
         chars.stream().sorted().forEach(System.out::println); // by level
         chars.stream().sorted(Comparator.comparingInt((CCharacter c) -> c.xp).reversed()).forEach(System.out::println);
         chars.stream().sorted(Comparator.comparing(c -> c.name)).forEach(System.out::println);
+        CharacterLeaderboard ranking = new CharacterLeaderboard();
+        chars.forEach(ranking::upsert);
+        System.out.println("Rank di C: " + ranking.rankOf("C") + ", top 2: " + ranking.top(2));
 
         // 62 - Operazioni su Item
         List<Item> items = new ArrayList<>(List.of(
@@ -68,6 +92,9 @@ public class M5 {
         items.removeIf(i -> i.price < 10);
         double media = items.stream().mapToDouble(Item::getPrice).average().orElse(0);
         System.out.println("Media prezzi: " + media);
+        System.out.println("Per prezzo: " + RadixSort.sortedView(items, i -> RadixSort.key(i.getPrice())));
+        System.out.println("Per livello e XP: "
+                + RadixSort.sortedView(chars, c -> RadixSort.pack(c.level, c.xp)));
 
         // 63 - Stream su Transaction
         List<Transaction> tx = List.of(
@@ -80,6 +107,13 @@ public class M5 {
                 .entrySet().stream().sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
                 .limit(3).forEach(System.out::println);
         tx.stream().sorted(Comparator.comparing(Transaction::getDate)).forEach(System.out::println);
+        TopSpenders spenders = tx.parallelStream().collect(TopSpenders.collector(3));
+        spenders.add(new Transaction("Nami", 500, LocalDate.of(2024, 4, 1))); // incrementale
+        System.out.println("Top spender: " + spenders.top());
+        TransactionStore store = new TransactionStore();
+        tx.forEach(store::append);
+        System.out.println("Totale Q1 2024: " + store.sum(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31))
+                + ", media: " + store.average(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
 
         // 64 - Raggruppamento prodotti
         List<Product> products = List.of(
@@ -91,6 +125,10 @@ public class M5 {
                         Collectors.collectingAndThen(Collectors.maxBy(Comparator.comparingInt(Product::getSold)),
                                 Optional::get)));
         System.out.println(top);
+        BestsellerLeaderboard leaderboard = new BestsellerLeaderboard(3);
+        products.forEach(leaderboard::seed);
+        leaderboard.sale("Weapon", "Katana", 40); // 60 > 50: supera Dagger
+        System.out.println("Bestseller Weapon: " + leaderboard.topProduct("Weapon").orElse(null));
 
         // 65 - Numeri pari trasformati
         List<Integer> nums = List.of(1, 2, 3, 4, 5, 6);
@@ -167,17 +205,295 @@ class Box<T> {
     }
 }
 
+// 58 - Matchmaking per fasce di skill
+/*
+ * Ogni fascia di skill (skill / bracketWidth) ha una coda concorrente lock-free, quindi gli
+ * enqueue da molti thread non si contendono un lock. A ogni tick un solo thread sposta i
+ * nuovi arrivi nelle liste di attesa (toccate solo da lui), scorre le fasce in ordine e
+ * forma stanze di giocatori vicini: un giocatore accetta fasce distanti fino a
+ * attesa / widenEveryMillis, quindi chi aspetta di più trova partita più facilmente.
+ * I tempi di attesa delle ultime partite servono a calcolare i percentili.
+ */
+class MatchmakingEngine {
+    private static final int SAMPLES = 1 << 16;
+    private static final int MAX_BRACKETS = 1024;
+
+    private static final class Ticket {
+        final Player player;
+        final int bracket;
+        final long enqueuedAt = System.nanoTime();
+        boolean matched;
+
+        Ticket(Player player, int bracket) {
+            this.player = player;
+            this.bracket = bracket;
+        }
+    }
+
+    private final int roomSize, bracketWidth;
+    private final long widenEveryNanos;
+    private final Consumer<List<Player>> onRoom;
+    private final ConcurrentLinkedQueue<Ticket>[] incoming;
+    private final ArrayDeque<Ticket>[] waiting; // solo il thread del tick
+    private final LongAdder queued = new LongAdder();
+    private final long[] waitSamples = new long[SAMPLES];
+    private long sampleCount;
+    private ScheduledExecutorService scheduler;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    MatchmakingEngine(int roomSize, int bracketWidth, int maxSkill, long widenEveryMillis, Consumer<List<Player>> onRoom) {
+        if (roomSize <= 0 || bracketWidth <= 0 || widenEveryMillis <= 0 || maxSkill < 0)
+            throw new IllegalArgumentException("roomSize, bracketWidth and widenEveryMillis must be positive, maxSkill non-negative");
+        this.roomSize = roomSize;
+        this.bracketWidth = bracketWidth;
+        this.widenEveryNanos = TimeUnit.MILLISECONDS.toNanos(widenEveryMillis);
+        this.onRoom = onRoom;
+        int brackets = Math.min(MAX_BRACKETS, maxSkill / bracketWidth + 1);
+        incoming = new ConcurrentLinkedQueue[brackets];
+        waiting = new ArrayDeque[brackets];
+        for (int i = 0; i < brackets; i++) {
+            incoming[i] = new ConcurrentLinkedQueue<>();
+            waiting[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void enqueue(Player player, int skill) {
+        int bracket = Math.max(0, Math.min(incoming.length - 1, skill / bracketWidth));
+        incoming[bracket].add(new Ticket(player, bracket));
+        queued.increment();
+    }
+
+    public long waiting() {
+        return queued.sum();
+    }
+
+    public synchronized void start(long tickMillis) {
+        if (scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        // un'eccezione uscita dal task cancellerebbe in silenzio tutti i tick successivi
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null)
+            scheduler.shutdown();
+        scheduler = null;
+    }
+
+    // Forma tutte le stanze possibili adesso. Non va chiamato da più thread insieme.
+    public synchronized int tick() {
+        long now = System.nanoTime();
+        for (int b = 0; b < incoming.length; b++)
+            for (Ticket t; (t = incoming[b].poll()) != null; )
+                waiting[b].add(t);
+
+        try {
+            return match(now);
+        } finally {
+            // anche se qualcosa è andato storto, i ticket già assegnati non restano in attesa
+            for (ArrayDeque<Ticket> bracket : waiting)
+                bracket.removeIf(t -> t.matched);
+        }
+    }
+
+    private int match(long now) {
+        int rooms = 0;
+        List<Ticket> group = new ArrayList<>(roomSize);
+        int groupRadius = Integer.MAX_VALUE;
+        for (int b = 0; b < waiting.length; b++) {
+            for (Ticket t : waiting[b]) {
+                if (t.matched)
+                    continue;
+                int radius = (int) Math.min(waiting.length, (now - t.enqueuedAt) / widenEveryNanos);
+                // tutti i membri devono tollerare la distanza tra la fascia più bassa e questa
+                if (!group.isEmpty() && b - group.get(0).bracket > Math.min(groupRadius, radius)) {
+                    group.clear();
+                    groupRadius = Integer.MAX_VALUE;
+                }
+                group.add(t);
+                groupRadius = Math.min(groupRadius, radius);
+                if (group.size() == roomSize) {
+                    formRoom(group, now);
+                    rooms++;
+                    group.clear();
+                    groupRadius = Integer.MAX_VALUE;
+                }
+            }
+        }
+        return rooms;
+    }
+
+    private void formRoom(List<Ticket> group, long now) {
+        List<Player> room = new ArrayList<>(group.size());
+        for (Ticket t : group) {
+            t.matched = true; // tolto dalla lista di attesa a fine tick
+            room.add(t.player);
+            waitSamples[(int) (sampleCount++ & (SAMPLES - 1))] = now - t.enqueuedAt;
+        }
+        queued.add(-group.size());
+        // i giocatori sono già assegnati: un errore del callback non deve rimetterli in coda
+        try {
+            onRoom.accept(room);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Percentile del tempo di attesa (ms) sulle ultime partite formate.
+    public synchronized long queueTimePercentile(double p) {
+        int n = (int) Math.min(sampleCount, SAMPLES);
+        if (n == 0)
+            return 0;
+        long[] sorted = Arrays.copyOf(waitSamples, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.min(n - 1, Math.max(0, Math.ceil(n * p / 100) - 1));
+        return TimeUnit.NANOSECONDS.toMillis(sorted[rank]);
+    }
+}
+
 // 59 - Tracciamento achievements
+/*
+ * Con milioni di giocatori HashMap<String,Integer> e HashSet<String> pesano troppo (boxing,
+ * Entry, hash della stringa a ogni update). Chiavi e achievement vengono quindi internati
+ * una volta sola in id int densi (KeyRegistry); ogni giocatore tiene le stat in una mappa
+ * int->int a indirizzamento aperto e gli achievement in un BitSet indicizzato per id.
+ */
 class PlayerData {
-    Set<String> achievements = new HashSet<>();
-    Map<String, Integer> stats = new HashMap<>();
+    static final KeyRegistry STAT_KEYS = new KeyRegistry();
+    static final KeyRegistry ACHIEVEMENTS = new KeyRegistry();
+
+    private final BitSet achievements = new BitSet();
+    private final IntIntMap stats = new IntIntMap();
 
     void unlock(String achievement) {
-        achievements.add(achievement);
+        achievements.set(ACHIEVEMENTS.idOf(achievement));
     }
 
     void updateStat(String key, int value) {
-        stats.put(key, stats.getOrDefault(key, 0) + value);
+        stats.add(STAT_KEYS.idOf(key), value);
+    }
+
+    boolean hasAchievement(String achievement) {
+        int id = ACHIEVEMENTS.existingId(achievement);
+        return id >= 0 && achievements.get(id);
+    }
+
+    int getStat(String key) {
+        int id = STAT_KEYS.existingId(key);
+        return id >= 0 ? stats.get(id) : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner unlocked = new StringJoiner(", ", "[", "]");
+        achievements.stream().forEach(id -> unlocked.add(ACHIEVEMENTS.name(id)));
+        StringJoiner values = new StringJoiner(", ", "{", "}");
+        stats.forEach((id, v) -> values.add(STAT_KEYS.name(id) + "=" + v));
+        return "achievements=" + unlocked + ", stats=" + values;
+    }
+}
+
+// Assegna a ogni stringa un id int denso e stabile, condiviso da tutti i giocatori.
+class KeyRegistry {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int count;
+
+    int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    // -1 se la stringa non è mai stata registrata (nessun giocatore la usa).
+    int existingId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    private synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+        if (count == names.length)
+            names = Arrays.copyOf(names, count * 2);
+        names[count] = name;
+        // il nome è già in names prima che l'id diventi visibile nella mappa
+        ids.put(name, count);
+        return count++;
+    }
+}
+
+// Mappa int->int a indirizzamento aperto (linear probing), senza boxing.
+class IntIntMap {
+    interface Visitor {
+        void accept(int key, int value);
+    }
+
+    private int[] keys = new int[8]; // id + 1, 0 = slot vuoto
+    private int[] values = new int[8];
+    private int size;
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+            if (keys[i] == key + 1)
+                return values[i];
+        return 0;
+    }
+
+    void add(int key, int delta) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        for (; keys[i] != 0; i = (i + 1) & mask)
+            if (keys[i] == key + 1) {
+                values[i] += delta;
+                return;
+            }
+        keys[i] = key + 1;
+        values[i] = delta;
+        if (++size * 2 > keys.length)
+            rehash();
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != 0)
+                visitor.accept(keys[i] - 1, values[i]);
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0)
+                continue;
+            int i = mix(oldKeys[j] - 1) & mask;
+            while (keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int mix(int key) {
+        return key * 0x9E3779B9;
     }
 }
 
@@ -195,44 +511,251 @@ class PlayerData {
  * mantenendo il codice pulito e senza modificare le collezioni di base.
  */
 class GameEventLog implements Iterable<String> {
-    private final List<Event> events = new ArrayList<>();
+    // Ring buffer ordinato per tempo: timestamp primitivi (millis) in parallelo ai messaggi.
+    // Gli eventi più vecchi della finestra di retention vengono scartati a ogni append.
+    private final long retentionMillis;
+    private long[] timestamps = new long[16];
+    private String[] messages = new String[16];
+    private int head, size;
+    private int modCount;
+
+    public GameEventLog() {
+        this(Duration.ofMinutes(5));
+    }
+
+    public GameEventLog(Duration retention) {
+        this.retentionMillis = retention.toMillis();
+    }
 
     public void log(String message) {
-        events.add(new Event(message));
+        long now = System.currentTimeMillis();
+        // l'orologio di sistema può tornare indietro: l'ordine deve restare non decrescente
+        if (size > 0) now = Math.max(now, timestamps[slot(size - 1)]);
+        evictOlderThan(now - retentionMillis);
+        if (size == timestamps.length) grow();
+        int s = slot(size);
+        timestamps[s] = now;
+        messages[s] = message;
+        size++;
+        modCount++;
+    }
+
+    public int size() {
+        return size;
     }
 
     @Override
     public Iterator<String> iterator() {
-        return new RecentEventIterator();
+        return new RecentEventIterator(System.currentTimeMillis() - retentionMillis);
+    }
+
+    private int slot(int logical) {
+        int s = head + logical;
+        return s >= timestamps.length ? s - timestamps.length : s;
     }
 
-    private class Event {
-        String message;
-        Instant timestamp = Instant.now();
+    private void evictOlderThan(long cutoff) {
+        while (size > 0 && timestamps[head] <= cutoff) {
+            messages[head] = null;
+            head = slot(1);
+            size--;
+        }
+        if (size == 0) head = 0;
+    }
+
+    private void grow() {
+        long[] t = new long[timestamps.length * 2];
+        String[] m = new String[t.length];
+        for (int i = 0; i < size; i++) {
+            t[i] = timestamps[slot(i)];
+            m[i] = messages[slot(i)];
+        }
+        timestamps = t;
+        messages = m;
+        head = 0;
+    }
 
-        Event(String msg) {
-            this.message = msg;
+    // Primo indice logico con timestamp > cutoff (ricerca binaria sul ring).
+    private int firstAfter(long cutoff) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[slot(mid)] > cutoff) hi = mid;
+            else lo = mid + 1;
         }
+        return lo;
     }
 
     private class RecentEventIterator implements Iterator<String> {
-        private final Iterator<Event> internal = events.iterator();
-        private final Instant cutoff = Instant.now().minus(Duration.ofMinutes(5));
-        private Event next;
+        private int next;
+        private final int end = size;
+        private final int expectedModCount = modCount;
+
+        RecentEventIterator(long cutoff) {
+            next = firstAfter(cutoff);
+        }
 
         public boolean hasNext() {
-            while (internal.hasNext()) {
-                Event candidate = internal.next();
-                if (candidate.timestamp.isAfter(cutoff)) {
-                    next = candidate;
-                    return true;
+            return next < end;
+        }
+
+        public String next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return messages[slot(next++)];
+        }
+    }
+}
+
+// 60 - GameEventLog multi-producer senza lock
+/*
+ * Ring limitato e preallocato: ogni producer prenota una sequenza con un CAS (solo se c'è
+ * posto, cioè se la sequenza è a meno di capacity da quella già drenata), scrive timestamp
+ * (long[] primitivo) e messaggio nel suo slot e lo pubblica scrivendo la sequenza in
+ * published. Gli slot si riusano giro dopo giro, quindi non c'è un limite al numero totale
+ * di eventi; quando il ring è pieno decide la politica: BLOCK aspetta il consumer, DROP
+ * scarta e conta. Un solo consumer drena a blocchi. Gli iteratori leggono senza lock gli
+ * eventi non ancora drenati: rileggono la sequenza dello slot dopo averlo letto e saltano
+ * gli slot già riciclati, e si fermano al primo slot non ancora pubblicato, così vedono
+ * sempre un prefisso coerente senza bloccare i writer. L'ordine è quello di prenotazione,
+ * non necessariamente quello dei timestamp.
+ */
+class ConcurrentGameEventLog implements Iterable<String> {
+    enum Overflow { BLOCK, DROP }
+
+    interface EventConsumer {
+        void accept(long timestampMillis, String message);
+    }
+
+    private static final long UNPUBLISHED = -1;
+
+    private final Overflow overflow;
+    private final int mask;
+    private final long[] timestamps;
+    private final String[] messages;
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long drained; // scritto solo dal consumer
+
+    // DROP per default: chi logga e itera senza mai chiamare drain non resta bloccato dopo
+    // 65536 eventi, ma perde quelli oltre la capacità (vedi dropped()). BLOCK va scelto
+    // esplicitamente, e solo se un consumer chiama drain.
+    public ConcurrentGameEventLog() {
+        this(1 << 16, Overflow.DROP);
+    }
+
+    public ConcurrentGameEventLog(int capacity, Overflow overflow) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        this.overflow = overflow;
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.messages = new String[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            published.set(i, UNPUBLISHED);
+    }
+
+    // false se l'evento è stato scartato (solo con Overflow.DROP).
+    public boolean log(String message) {
+        Objects.requireNonNull(message);
+        long seq;
+        while (true) {
+            seq = tail.get();
+            if (seq - drained > mask) { // ring pieno
+                if (overflow == Overflow.DROP) {
+                    dropped.increment();
+                    return false;
                 }
+                LockSupport.parkNanos(1_000);
+                continue;
             }
-            return false;
+            if (tail.compareAndSet(seq, seq + 1))
+                break;
+        }
+        int i = (int) seq & mask;
+        // invalida lo slot prima di sovrascriverlo: un iteratore che lo stava leggendo lo scarta
+        published.set(i, UNPUBLISHED);
+        VarHandle.storeStoreFence(); // i dati non possono essere scritti prima dell'invalidazione
+        timestamps[i] = System.currentTimeMillis();
+        messages[i] = message;
+        published.set(i, seq);
+        return true;
+    }
+
+    // Solo il thread consumer deve chiamarlo. Restituisce quanti eventi ha consegnato.
+    public int drain(int maxBatch, EventConsumer consumer) {
+        long cursor = drained;
+        int n = 0;
+        while (n < maxBatch) {
+            int i = (int) cursor & mask;
+            if (published.get(i) != cursor)
+                break; // prenotato ma non ancora pubblicato, o vuoto
+            consumer.accept(timestamps[i], messages[i]);
+            cursor++;
+            n++;
+        }
+        drained = cursor; // da qui gli slot letti possono essere riusati
+        return n;
+    }
+
+    public long published() {
+        return tail.get();
+    }
+
+    public long pending() {
+        return tail.get() - drained;
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new SnapshotIterator(drained, tail.get());
+    }
+
+    private class SnapshotIterator implements Iterator<String> {
+        private long next;
+        private final long end;
+        private String pending;
+
+        SnapshotIterator(long from, long to) {
+            next = from;
+            end = to;
+        }
+
+        public boolean hasNext() {
+            while (pending == null && next < end) {
+                long seq = next++;
+                int i = (int) seq & mask;
+                if (published.get(i) == seq) {
+                    String message = messages[i];
+                    VarHandle.loadLoadFence(); // come StampedLock.validate: lettura prima del ricontrollo
+                    if (published.get(i) == seq) { // non riciclato mentre lo leggevamo
+                        pending = message;
+                        return true;
+                    }
+                }
+                if (seq >= drained) {
+                    next = end; // primo buco non ancora pubblicato: lo snapshot finisce qui
+                    return false;
+                }
+                // altrimenti era già drenato e lo slot è stato riusato: si passa al successivo
+            }
+            return pending != null;
         }
 
         public String next() {
-            return next.message;
+            if (!hasNext())
+                throw new NoSuchElementException();
+            String result = pending;
+            pending = null;
+            return result;
         }
     }
 }
@@ -269,6 +792,202 @@ class CCharacter implements Comparable<CCharacter> {
     }
 }
 
+// 61 - Classifica live dei personaggi
+/*
+ * Skip list indicizzabile (come lo zset di Redis): ogni puntatore ricorda quanti nodi
+ * salta, quindi inserimento, rimozione, "che posizione ha X" e "chi è in posizione k"
+ * costano O(log n) attesi invece di riordinare tutta la lista a ogni richiesta. Ordine:
+ * livello decrescente, poi XP decrescente, poi nome; rank 1 è il primo. Le letture
+ * condividono un read lock, le scritture prendono il write lock. Livello e XP vengono
+ * copiati nel nodo: per aggiornare un personaggio si richiama upsert.
+ */
+class CharacterLeaderboard {
+    private static final int MAX_LEVEL = 32;
+
+    private static final class Node {
+        final int level, xp;
+        final String name;
+        final CCharacter character;
+        final Node[] next;
+        final int[] span;
+
+        Node(CCharacter c, int height) {
+            this.level = c == null ? 0 : c.level;
+            this.xp = c == null ? 0 : c.xp;
+            this.name = c == null ? null : c.name;
+            this.character = c;
+            this.next = new Node[height];
+            this.span = new int[height];
+        }
+    }
+
+    private final Node head = new Node(null, MAX_LEVEL);
+    private final Map<String, Node> byName = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int height = 1;
+    private int size;
+
+    // Inserisce il personaggio o lo riposiziona se il nome è già in classifica.
+    void upsert(CCharacter c) {
+        lock.writeLock().lock();
+        try {
+            Node old = byName.remove(c.name);
+            if (old != null)
+                delete(old);
+            byName.put(c.name, insert(c));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean remove(String name) {
+        lock.writeLock().lock();
+        try {
+            Node old = byName.remove(name);
+            if (old != null)
+                delete(old);
+            return old != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Posizione (da 1) del personaggio, -1 se non è in classifica.
+    int rankOf(String name) {
+        lock.readLock().lock();
+        try {
+            Node target = byName.get(name);
+            if (target == null)
+                return -1;
+            int rank = 0;
+            Node x = head;
+            for (int i = height - 1; i >= 0; i--) {
+                while (x.next[i] != null && compare(x.next[i], target) <= 0) {
+                    rank += x.span[i];
+                    x = x.next[i];
+                }
+                if (x == target)
+                    return rank;
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<CCharacter> top(int n) {
+        return page(0, n);
+    }
+
+    // limit personaggi a partire dalla posizione offset (0 = primo).
+    List<CCharacter> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<CCharacter> result = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+            if (offset < 0 || offset >= size)
+                return result;
+            for (Node x = nodeAt(offset + 1); x != null && result.size() < limit; x = x.next[0])
+                result.add(x.character);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Node nodeAt(int rank) {
+        int traversed = 0;
+        Node x = head;
+        for (int i = height - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank)
+                return x;
+        }
+        return null;
+    }
+
+    private Node insert(CCharacter c) {
+        Node key = new Node(c, randomHeight());
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = height - 1; i >= 0; i--) {
+            rank[i] = i == height - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && compare(x.next[i], key) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int h = key.next.length;
+        if (h > height) {
+            for (int i = height; i < h; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            height = h;
+        }
+        for (int i = 0; i < h; i++) {
+            key.next[i] = update[i].next[i];
+            update[i].next[i] = key;
+            key.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = h; i < height; i++)
+            update[i].span[i]++;
+        size++;
+        return key;
+    }
+
+    private void delete(Node target) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = height - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i], target) < 0)
+                x = x.next[i];
+            update[i] = x;
+        }
+        for (int i = 0; i < height; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (height > 1 && head.next[height - 1] == null)
+            height--;
+        size--;
+    }
+
+    private static int compare(Node a, Node b) {
+        if (a.level != b.level)
+            return Integer.compare(b.level, a.level);
+        if (a.xp != b.xp)
+            return Integer.compare(b.xp, a.xp);
+        return a.name.compareTo(b.name);
+    }
+
+    private static int randomHeight() {
+        int h = 1;
+        while (h < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0)
+            h++;
+        return h;
+    }
+}
+
 // 62 - Classe Item
 class Item {
     String name;
@@ -292,6 +1011,118 @@ class Item {
     }
 }
 
+// 62 - Radix sort su chiavi long
+/*
+ * Per milioni di elementi una catena di Comparator estrae e confronta chiavi boxed
+ * O(n log n) volte. Qui la chiave viene estratta una sola volta e impacchettata in un long
+ * (es. pack(level, xp) = level << 32 | xp), poi si ordina una permutazione di indici con un
+ * LSD radix sort a 8 bit per passata: stabile, O(n) per passata, e le passate in cui tutte
+ * le chiavi hanno la stessa cifra vengono saltate. Sopra PARALLEL_THRESHOLD istogrammi e
+ * scatter di ogni passata girano in parallelo su blocchi contigui.
+ */
+final class RadixSort {
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int MIN_CHUNK = 1 << 14;
+
+    private RadixSort() {
+    }
+
+    // Chiave composta: ordina per high e, a parità, per low (entrambi con segno).
+    static long pack(int high, int low) {
+        return ((long) high << 32) | ((low ^ 0x80000000L) & 0xFFFFFFFFL);
+    }
+
+    // Bit di un double riordinati in modo che il confronto tra long segua quello tra double.
+    static long key(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    static <T> int[] sortIndices(List<? extends T> items, ToLongFunction<? super T> keyOf) {
+        long[] keys = new long[items.size()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = keyOf.applyAsLong(items.get(i));
+        return sortIndices(keys);
+    }
+
+    // Vista (non copia) di items in ordine crescente di chiave; ordinamento stabile.
+    static <T> List<T> sortedView(List<T> items, ToLongFunction<? super T> keyOf) {
+        int[] order = sortIndices(items, keyOf);
+        return new AbstractList<T>() {
+            public T get(int i) {
+                return items.get(order[i]);
+            }
+
+            public int size() {
+                return order.length;
+            }
+        };
+    }
+
+    // Riordina l'array sul posto.
+    static <T> void sort(T[] items, ToLongFunction<? super T> keyOf) {
+        int[] order = sortIndices(Arrays.asList(items), keyOf);
+        T[] copy = items.clone();
+        for (int i = 0; i < order.length; i++)
+            items[i] = copy[order[i]];
+    }
+
+    // Permutazione stabile che ordina keys in modo crescente (con segno). keys non viene modificato.
+    static int[] sortIndices(long[] keys) {
+        int n = keys.length;
+        long[] src = new long[n], dst = new long[n];
+        int[] idx = new int[n], idxDst = new int[n];
+        long varying = 0;
+        for (int i = 0; i < n; i++) {
+            src[i] = keys[i] ^ Long.MIN_VALUE; // ordine senza segno
+            idx[i] = i;
+            varying |= src[i] ^ src[0];
+        }
+        boolean parallel = n >= PARALLEL_THRESHOLD;
+        int chunks = parallel ? Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, n / MIN_CHUNK)) : 1;
+        for (int shift = 0; shift < 64; shift += 8) {
+            if (((varying >>> shift) & 0xFF) == 0)
+                continue;
+            pass(src, idx, dst, idxDst, shift, chunks, parallel);
+            long[] k = src; src = dst; dst = k;
+            int[] t = idx; idx = idxDst; idxDst = t;
+        }
+        return idx;
+    }
+
+    private static void pass(long[] src, int[] idx, long[] dst, int[] idxDst, int shift, int chunks, boolean parallel) {
+        int n = src.length;
+        int[][] counts = new int[chunks][256];
+        IntStream blocks = IntStream.range(0, chunks);
+        (parallel ? blocks.parallel() : blocks).forEach(c -> {
+            int[] count = counts[c];
+            for (int i = start(c, chunks, n), end = start(c + 1, chunks, n); i < end; i++)
+                count[(int) (src[i] >>> shift) & 0xFF]++;
+        });
+        // offset di ogni (cifra, blocco): i blocchi restano in ordine, quindi l'ordinamento è stabile
+        int offset = 0;
+        for (int d = 0; d < 256; d++)
+            for (int c = 0; c < chunks; c++) {
+                int count = counts[c][d];
+                counts[c][d] = offset;
+                offset += count;
+            }
+        blocks = IntStream.range(0, chunks);
+        (parallel ? blocks.parallel() : blocks).forEach(c -> {
+            int[] next = counts[c];
+            for (int i = start(c, chunks, n), end = start(c + 1, chunks, n); i < end; i++) {
+                int at = next[(int) (src[i] >>> shift) & 0xFF]++;
+                dst[at] = src[i];
+                idxDst[at] = idx[i];
+            }
+        });
+    }
+
+    private static int start(int chunk, int chunks, int n) {
+        return (int) ((long) n * chunk / chunks);
+    }
+}
+
 // 63 - Classe Transaction
 /*
  * I loop imperativi offrono massimo controllo e prestazioni pure, ma richiedono
@@ -325,6 +1156,316 @@ class Transaction {
     }
 }
 
+// 63 - Top-K spender incrementale
+/*
+ * Invece di raggruppare tutto in una HashMap<String, Double> e ordinare ogni entry, le somme
+ * per utente stanno in una tabella a indirizzamento aperto con valori double primitivi e i
+ * migliori K sono tenuti in un min-heap di indici lungo al massimo K: ogni transazione costa
+ * O(1) + O(log K). Con importi negativi (rimborsi) un membro del heap può scendere sotto chi
+ * è fuori: in quel caso il heap viene ricostruito alla prima richiesta. Non è thread-safe:
+ * con gli stream paralleli ogni thread riempie la sua istanza e collector() le unisce.
+ */
+class TopSpenders {
+    private final int k;
+    private String[] users = new String[16];
+    private double[] sums = new double[16];
+    private int[] heapPos = new int[16]; // posizione nel heap, -1 se fuori
+    private int size;
+    private final int[] heap;
+    private int heapSize;
+    private boolean dirty;
+
+    TopSpenders(int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be positive");
+        this.k = k;
+        this.heap = new int[k];
+    }
+
+    static Collector<Transaction, TopSpenders, TopSpenders> collector(int k) {
+        return Collector.of(() -> new TopSpenders(k), TopSpenders::add, TopSpenders::merge);
+    }
+
+    void add(Transaction t) {
+        add(t.getUser(), t.getAmount());
+    }
+
+    void add(String user, double amount) {
+        int slot = slotOf(user);
+        sums[slot] += amount;
+        if (dirty)
+            return;
+        if (heapPos[slot] >= 0) {
+            if (amount < 0)
+                dirty = true;
+            else
+                siftDown(heapPos[slot]);
+        } else if (heapSize < k) {
+            heap[heapSize] = slot;
+            heapPos[slot] = heapSize;
+            siftUp(heapSize++);
+        } else if (sums[slot] > sums[heap[0]]) {
+            heapPos[heap[0]] = -1;
+            heap[0] = slot;
+            heapPos[slot] = 0;
+            siftDown(0);
+        }
+    }
+
+    TopSpenders merge(TopSpenders other) {
+        for (int i = 0; i < other.users.length; i++)
+            if (other.users[i] != null)
+                add(other.users[i], other.sums[i]);
+        return this;
+    }
+
+    double total(String user) {
+        int mask = users.length - 1;
+        for (int i = hash(user) & mask; users[i] != null; i = (i + 1) & mask)
+            if (users[i].equals(user))
+                return sums[i];
+        return 0;
+    }
+
+    // I K utenti con la spesa più alta, in ordine decrescente.
+    List<Map.Entry<String, Double>> top() {
+        if (dirty)
+            rebuildHeap();
+        List<Map.Entry<String, Double>> result = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++)
+            result.add(Map.entry(users[heap[i]], sums[heap[i]]));
+        result.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+        return result;
+    }
+
+    private int slotOf(String user) {
+        int mask = users.length - 1;
+        int i = hash(user) & mask;
+        for (; users[i] != null; i = (i + 1) & mask)
+            if (users[i].equals(user))
+                return i;
+        users[i] = user;
+        heapPos[i] = -1;
+        if (++size * 2 > users.length) {
+            rehash();
+            return slotOf(user);
+        }
+        return i;
+    }
+
+    private void rehash() {
+        String[] oldUsers = users;
+        double[] oldSums = sums;
+        users = new String[oldUsers.length * 2];
+        sums = new double[users.length];
+        heapPos = new int[users.length];
+        int mask = users.length - 1;
+        for (int j = 0; j < oldUsers.length; j++) {
+            if (oldUsers[j] == null)
+                continue;
+            int i = hash(oldUsers[j]) & mask;
+            while (users[i] != null)
+                i = (i + 1) & mask;
+            users[i] = oldUsers[j];
+            sums[i] = oldSums[j];
+        }
+        rebuildHeap(); // gli indici degli slot sono cambiati
+    }
+
+    private void rebuildHeap() {
+        Arrays.fill(heapPos, -1);
+        heapSize = 0;
+        for (int i = 0; i < users.length; i++) {
+            if (users[i] == null)
+                continue;
+            if (heapSize < k) {
+                heap[heapSize] = i;
+                heapPos[i] = heapSize;
+                siftUp(heapSize++);
+            } else if (sums[i] > sums[heap[0]]) {
+                heapPos[heap[0]] = -1;
+                heap[0] = i;
+                heapPos[i] = 0;
+                siftDown(0);
+            }
+        }
+        dirty = false;
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (sums[heap[parent]] <= sums[slot])
+                break;
+            move(heap[parent], i);
+            i = parent;
+        }
+        move(slot, i);
+    }
+
+    private void siftDown(int i) {
+        int slot = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && sums[heap[child + 1]] < sums[heap[child]])
+                child++;
+            if (sums[heap[child]] >= sums[slot])
+                break;
+            move(heap[child], i);
+            i = child;
+        }
+        move(slot, i);
+    }
+
+    private void move(int slot, int pos) {
+        heap[pos] = slot;
+        heapPos[slot] = pos;
+    }
+
+    private static int hash(String user) {
+        int h = user.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
+
+// 63 - Archivio colonnare di Transaction ordinato per data
+/*
+ * Invece di una lista di oggetti con LocalDate e String, ogni campo ha il suo array
+ * primitivo: giorno epoch (int), importo in centesimi (long) e utente codificato a
+ * dizionario (int, tramite KeyRegistry). Le righe restano ordinate per data: un append in
+ * ordine costa O(1) ammortizzato, uno fuori ordine sposta la coda con arraycopy. Le query su
+ * un intervallo trovano gli estremi con due ricerche binarie e aggregano solo le colonne
+ * necessarie, in parallelo quando l'intervallo è grande.
+ */
+class TransactionStore {
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final KeyRegistry userIds = new KeyRegistry();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] days = new int[16];
+    private long[] cents = new long[16];
+    private int[] users = new int[16];
+    private int size;
+
+    void append(Transaction t) {
+        int day = (int) t.getDate().toEpochDay();
+        long amount = Math.round(t.getAmount() * 100);
+        int user = userIds.idOf(t.getUser());
+        lock.writeLock().lock();
+        try {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+                users = Arrays.copyOf(users, size * 2);
+            }
+            int at = size == 0 || days[size - 1] <= day ? size : upperBound(day);
+            if (at < size) {
+                System.arraycopy(days, at, days, at + 1, size - at);
+                System.arraycopy(cents, at, cents, at + 1, size - at);
+                System.arraycopy(users, at, users, at + 1, size - at);
+            }
+            days[at] = day;
+            cents[at] = amount;
+            users[at] = user;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Riga i-esima in ordine cronologico, ricostruita come oggetto.
+    Transaction get(int i) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(i, size);
+            return new Transaction(userIds.name(users[i]), cents[i] / 100.0, LocalDate.ofEpochDay(days[i]));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Estremi inclusi in tutte le query.
+    long count(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            return Math.max(0, upperBound((int) to.toEpochDay()) - lowerBound((int) from.toEpochDay()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    double sum(LocalDate from, LocalDate to) {
+        return sumCents(from, to) / 100.0;
+    }
+
+    OptionalDouble average(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int lo = lowerBound((int) from.toEpochDay()), hi = upperBound((int) to.toEpochDay());
+            if (hi <= lo)
+                return OptionalDouble.empty();
+            return OptionalDouble.of(sumCents(lo, hi) / 100.0 / (hi - lo));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long sumCents(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            return sumCents(lowerBound((int) from.toEpochDay()), upperBound((int) to.toEpochDay()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long sumCents(int lo, int hi) {
+        if (hi <= lo)
+            return 0;
+        long[] column = cents;
+        IntStream range = IntStream.range(lo, hi);
+        return (hi - lo >= PARALLEL_THRESHOLD ? range.parallel() : range).mapToLong(i -> column[i]).sum();
+    }
+
+    // Primo indice con giorno >= day.
+    private int lowerBound(int day) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < day)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // Primo indice con giorno > day.
+    private int upperBound(int day) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] <= day)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
+
 // 64 - Classe Product
 class Product {
     String name, category;
@@ -349,6 +1490,102 @@ class Product {
     }
 }
 
+// 64 - Classifica bestseller aggiornata a ogni vendita
+/*
+ * Ricalcolare groupingBy + maxBy sull'intero catalogo a ogni richiesta è O(prodotti).
+ * Qui ogni evento di vendita aggiorna il venduto del prodotto e, sotto il lock della sola
+ * categoria, la sua top-N: una lista immutabile e già ordinata, pubblicata in un campo
+ * volatile, così le letture sono O(1) e senza lock. Solo se un prodotto in classifica
+ * scende (delta negativo) e qualcuno fuori classifica potrebbe superarlo si riscansiona la
+ * categoria. Una categoria vuota restituisce Optional.empty() invece di lanciare eccezioni.
+ */
+class BestsellerLeaderboard {
+    static final class Ranked {
+        final String product;
+        final long sold;
+
+        Ranked(String product, long sold) {
+            this.product = product;
+            this.sold = sold;
+        }
+
+        public String toString() {
+            return product + "=" + sold;
+        }
+    }
+
+    private static final Comparator<Ranked> ORDER =
+            Comparator.comparingLong((Ranked r) -> r.sold).reversed().thenComparing(r -> r.product);
+
+    private static final class Category {
+        final Map<String, Long> sold = new HashMap<>(); // protetta dal lock della categoria
+        volatile List<Ranked> top = List.of();
+    }
+
+    private final int n;
+    private final ConcurrentHashMap<String, Category> categories = new ConcurrentHashMap<>();
+
+    BestsellerLeaderboard(int n) {
+        this.n = n;
+    }
+
+    void seed(Product p) {
+        sale(p.getCategory(), p.name, p.getSold());
+    }
+
+    void sale(String category, String product, long delta) {
+        Category c = categories.computeIfAbsent(category, k -> new Category());
+        synchronized (c) {
+            long sold = c.sold.merge(product, delta, Long::sum);
+            List<Ranked> top = c.top;
+            int index = indexOf(top, product);
+            if (delta < 0 && index >= 0 && c.sold.size() > top.size()) {
+                c.top = rescan(c); // chi era fuori classifica potrebbe ora superarlo
+                return;
+            }
+            if (index < 0 && top.size() == n && ORDER.compare(new Ranked(product, sold), top.get(n - 1)) >= 0)
+                return; // resta fuori classifica
+            List<Ranked> next = new ArrayList<>(top);
+            if (index >= 0)
+                next.remove(index);
+            next.add(new Ranked(product, sold));
+            next.sort(ORDER);
+            if (next.size() > n)
+                next.remove(n);
+            c.top = List.copyOf(next);
+        }
+    }
+
+    Optional<Ranked> topProduct(String category) {
+        List<Ranked> top = top(category);
+        return top.isEmpty() ? Optional.empty() : Optional.of(top.get(0));
+    }
+
+    List<Ranked> top(String category) {
+        Category c = categories.get(category);
+        return c == null ? List.of() : c.top;
+    }
+
+    private List<Ranked> rescan(Category c) {
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(ORDER.reversed());
+        for (Map.Entry<String, Long> e : c.sold.entrySet()) {
+            heap.add(new Ranked(e.getKey(), e.getValue()));
+            if (heap.size() > n)
+                heap.poll();
+        }
+        List<Ranked> result = new ArrayList<>(heap);
+        result.sort(ORDER);
+        return List.copyOf(result);
+    }
+
+    private static int indexOf(List<Ranked> top, String product) {
+        for (int i = 0; i < top.size(); i++)
+            if (top.get(i).product.equals(product))
+                return i;
+        return -1;
+    }
+}
+
 // 66 - Book
 class Book {
     String title, author;
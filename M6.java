@@ -183,15 +183,22 @@ public class M6 {
         }
     }
 
+    // Reads one line through a buffered reader rather than Scanner, which runs a regex per call.
     static void validateAndSaveInput(String path, String forbidden) throws IOException {
-        Scanner scanner = new Scanner(System.in);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in), 1 << 16);
         System.out.print("Enter input: ");
-        String input = scanner.nextLine().trim().replaceAll("\\s+", " ");
+        String line = reader.readLine();
+        if (line == null) {
+            System.out.println("Error: no input");
+            return;
+        }
+        String input = WHITESPACE.matcher(line.trim()).replaceAll(" ");
         if (input.contains(forbidden)) System.out.println("Error: contains forbidden words");
         else Files.writeString(Path.of(path), input + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        scanner.close();
     }
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     // --- Serializable classes ---
 
     // TODO: review SerialVersionUID